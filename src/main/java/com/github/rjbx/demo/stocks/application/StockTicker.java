@@ -6,11 +6,11 @@ import com.github.rjbx.demo.stocks.service.*;
 import com.github.rjbx.demo.stocks.utility.HoursInterval;
 import com.github.rjbx.demo.stocks.utility.Interval;
 import com.github.rjbx.demo.stocks.utility.StockServiceException;
+import com.github.rjbx.demo.stocks.utility.XMLUtils;
 import org.apache.http.annotation.Immutable;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormatter;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
@@ -80,15 +80,12 @@ public final class StockTicker {
         System.out.println(databaseService.getQuote(args[0], startRange, endRange, interval));
 
         // convert from XML to Java
-        JAXBContext jaxbContext = JAXBContext.newInstance(XMLStockQuoteList.class);
-        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        Unmarshaller unmarshaller = XMLUtils.getUnmarshaller(XMLStockQuoteList.class);
         XMLStockQuoteList quotes = (XMLStockQuoteList) unmarshaller.unmarshal(new StringReader(xmlInstance));
         System.out.println(quotes.toString());
 
         // convert from Java to XML
-        JAXBContext context = JAXBContext.newInstance(XMLStockQuoteList.class);
-        Marshaller marshaller = context.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        Marshaller marshaller = XMLUtils.getMarshaller(XMLStockQuoteList.class);
         marshaller.marshal(quotes, System.out);
     }
 }
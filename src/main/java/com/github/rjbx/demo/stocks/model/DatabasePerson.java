@@ -1,5 +1,8 @@
 package com.github.rjbx.demo.stocks.model;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 /**
  * This class models a database table containing information about people
@@ -37,7 +40,9 @@ public class DatabasePerson implements DatabaseAccessObject {
      */
     @Id
     @Column(name = "id", nullable = false, insertable = true, updatable = true)
-    @GeneratedValue
+    @GeneratedValue(generator = "people")
+    @GenericGenerator(name = "people", strategy = "com.github.rjbx.demo.stocks.utility.PooledIdGenerator",
+            parameters = @Parameter(name = "table", value = "people"))
     public int getId() {
         return id;
     }
@@ -1,5 +1,8 @@
 package com.github.rjbx.demo.stocks.model;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 
 /**
@@ -38,7 +41,9 @@ public class DatabasePersonStock implements DatabaseAccessObject {
      */
     @Id
     @Column(name = "id", nullable = false, insertable = true, updatable = true)
-    @GeneratedValue
+    @GeneratedValue(generator = "person_stocks")
+    @GenericGenerator(name = "person_stocks", strategy = "com.github.rjbx.demo.stocks.utility.PooledIdGenerator",
+            parameters = @Parameter(name = "table", value = "person_stocks"))
     public int getId() {
         return id;
     }
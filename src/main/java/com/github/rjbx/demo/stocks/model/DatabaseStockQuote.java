@@ -2,6 +2,9 @@ package com.github.rjbx.demo.stocks.model;
 
 import org.joda.time.DateTime;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
@@ -43,7 +46,9 @@ public class DatabaseStockQuote implements DatabaseAccessObject {
      */
     @Id
     @Column(name = "id",  nullable = false, insertable = true, updatable = true)
-    @GeneratedValue
+    @GeneratedValue(generator = "quotes")
+    @GenericGenerator(name = "quotes", strategy = "com.github.rjbx.demo.stocks.utility.PooledIdGenerator",
+            parameters = @Parameter(name = "table", value = "quotes"))
     public int getId() {
         return id;
     }
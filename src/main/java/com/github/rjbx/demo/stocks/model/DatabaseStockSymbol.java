@@ -1,5 +1,8 @@
 package com.github.rjbx.demo.stocks.model;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 import javax.persistence.*;
 
 /**
@@ -34,7 +37,9 @@ public class DatabaseStockSymbol implements DatabaseAccessObject {
      */
     @Id
     @Column(name = "id",  nullable = false, insertable = true, updatable = true)
-    @GeneratedValue
+    @GeneratedValue(generator = "stock_symbols")
+    @GenericGenerator(name = "stock_symbols", strategy = "com.github.rjbx.demo.stocks.utility.PooledIdGenerator",
+            parameters = @Parameter(name = "table", value = "stock_symbols"))
     public int getId() {
         return id;
     }
@@ -51,7 +56,7 @@ public class DatabaseStockSymbol implements DatabaseAccessObject {
      * @return the symbol field of this {@code StockSymbol} instance
      */
     @Basic
-    @Column(name = "symbol", nullable = false, insertable = true, updatable = true, length = 4)
+    @Column(name = "symbol", nullable = false, insertable = true, updatable = true, length = 4, unique = true)
     public String getSymbol() {
         return symbol;
     }
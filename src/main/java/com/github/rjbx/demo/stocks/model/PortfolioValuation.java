@@ -0,0 +1,95 @@
+package com.github.rjbx.demo.stocks.model;
+
+import org.apache.http.annotation.Immutable;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+
+/**
+ * This class stores the market value of the stocks a person holds, as of the time the oldest price it was computed from
+ * was known to be current, together with how many of the stocks had a price to value them with.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class PortfolioValuation {
+    // private fields of this class
+    private final int personId;
+    private final BigDecimal value;
+    private final int positions;
+    private final int pricedPositions;
+    private final DateTime time;
+
+    /**
+     * Constructs a new {@code PortfolioValuation} instance
+     * @param personId the id of the person holding the portfolio
+     * @param value the sum of the prices of the priced positions
+     * @param positions number of stocks the person holds
+     * @param pricedPositions number of stocks which had a price
+     * @param time when the oldest price the value was computed from was known to be current
+     */
+    public PortfolioValuation(int personId, BigDecimal value, int positions, int pricedPositions, DateTime time) {
+        // if any parameter values are null, throw exception; otherwise, initialize fields
+        if ((value == null) || (time == null)) {
+            throw new RuntimeException();
+        }
+        this.personId = personId;
+        this.value = value;
+        this.positions = positions;
+        this.pricedPositions = pricedPositions;
+        this.time = new DateTime(time);
+    }
+
+    /**
+     * @return the id of the person holding the portfolio
+     */
+    public final int getPersonId() {
+        return personId;
+    }
+
+    /**
+     * @return the sum of the prices of the priced positions
+     */
+    public final BigDecimal getValue() {
+        return value;
+    }
+
+    /**
+     * @return the number of stocks the person holds
+     */
+    public final int getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return the number of stocks which had a price when the value was computed
+     */
+    public final int getPricedPositions() {
+        return pricedPositions;
+    }
+
+    /**
+     * @return when the oldest price the value was computed from was known to be current
+     */
+    public final DateTime getTime() {
+        return time;
+    }
+
+    /**
+     * @param maxStalenessMillis the greatest acceptable age of the value in milliseconds
+     * @return true if the oldest price the value was computed from was known to be current longer ago than the given age
+     */
+    public final boolean isStale(long maxStalenessMillis) {
+        return time.plus(maxStalenessMillis).isBeforeNow();
+    }
+
+    /**
+     * @return a String containing the formatted values of the fields of this instance
+     */
+    @Override
+    public String toString() {
+        return " [ " + personId + " " + time.toString(StockQuote.getDateFormatter())
+                + " " + NumberFormat.getCurrencyInstance().format(value)
+                + " (" + pricedPositions + "/" + positions + ") ] ";
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.rjbx.demo.stocks.model;
+
+import com.github.rjbx.demo.stocks.utility.Interval;
+import org.apache.http.annotation.Immutable;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class stores the open, high, low and close prices of a stock of a particular symbol over one interval of time,
+ * together with the number of quotes the interval was aggregated from when it is known.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class StockQuoteBar {
+    // private fields of this class
+    public static final int UNKNOWN_COUNT = 0;
+    private final String symbol;
+    private final DateTime time;
+    private final DateTime openTime;
+    private final BigDecimal open;
+    private final BigDecimal high;
+    private final BigDecimal low;
+    private final BigDecimal close;
+    private final int count;
+
+    /**
+     * Constructs a new {@code StockQuoteBar} instance whose first quote is only known to lie at the beginning of the interval
+     * @param time beginning of the interval
+     * @param open price of the first quote in the interval
+     * @param high highest price in the interval
+     * @param low lowest price in the interval
+     * @param close price of the last quote in the interval
+     * @param count number of quotes in the interval, or {@link #UNKNOWN_COUNT} if the source does not report it
+     * @param symbol symbol for the company issuing the stock
+     */
+    public StockQuoteBar(DateTime time, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, int count, String symbol) {
+        this(time, time, open, high, low, close, count, symbol);
+    }
+
+    /**
+     * Constructs a new {@code StockQuoteBar} instance
+     * @param time beginning of the interval
+     * @param openTime time of the first quote in the interval
+     * @param open price of the first quote in the interval
+     * @param high highest price in the interval
+     * @param low lowest price in the interval
+     * @param close price of the last quote in the interval
+     * @param count number of quotes in the interval, or {@link #UNKNOWN_COUNT} if the source does not report it
+     * @param symbol symbol for the company issuing the stock
+     */
+    public StockQuoteBar(DateTime time, DateTime openTime, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, int count, String symbol) {
+        // if any parameter values are null, throw exception; otherwise, initialize fields
+        if ((time == null) || (openTime == null) || (open == null) || (high == null) || (low == null) || (close == null) || (symbol == null)) {
+            throw new RuntimeException();
+        }
+        this.time = new DateTime(time);
+        this.openTime = new DateTime(openTime);
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.count = count;
+        this.symbol = symbol;
+    }
+
+    /**
+     * Aggregates quotes, ordered by time, into one bar per interval beginning at the start of the range.
+     * Intervals without quotes produce no bar.
+     * @param quotes {@code StockQuote} instances of a single symbol ordered by time
+     * @param startRange beginning of the first interval
+     * @param interval length of each interval
+     * @return a {@code List} of {@code StockQuoteBar} instances ordered by time
+     */
+    public static List<StockQuoteBar> fromQuotes(List<StockQuote> quotes, DateTime startRange, Interval interval) {
+        List<StockQuoteBar> bars = new ArrayList<StockQuoteBar>();
+        DateTime intervalStart = null;
+        DateTime intervalEnd = new DateTime(startRange);
+        StockQuote open = null;
+        StockQuote close = null;
+        BigDecimal high = null;
+        BigDecimal low = null;
+        int count = 0;
+        for (StockQuote quote : quotes) {
+            if (!quote.getTime().isBefore(intervalEnd)) {
+                if (open != null) {
+                    bars.add(new StockQuoteBar(intervalStart, open.getTime(), open.getPrice(), high, low, close.getPrice(), count, open.getSymbol()));
+                }
+                // skips intervals without quotes
+                while (!quote.getTime().isBefore(intervalEnd)) {
+                    intervalStart = intervalEnd;
+                    intervalEnd = intervalEnd.plusHours(interval.amount());
+                }
+                open = quote;
+                high = quote.getPrice();
+                low = quote.getPrice();
+                count = 0;
+            }
+            if (open != null) {
+                close = quote;
+                high = high.max(quote.getPrice());
+                low = low.min(quote.getPrice());
+                count++;
+            }
+        }
+        if (open != null) {
+            bars.add(new StockQuoteBar(intervalStart, open.getTime(), open.getPrice(), high, low, close.getPrice(), count, open.getSymbol()));
+        }
+        return bars;
+    }
+
+    /**
+     * @return the symbol that represents the company issuing this stock
+     */
+    public final String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the beginning of the interval of this bar
+     */
+    public final DateTime getTime() {
+        return time;
+    }
+
+    /**
+     * @return the time of the first quote in the interval
+     */
+    public final DateTime getOpenTime() {
+        return openTime;
+    }
+
+    /**
+     * @return the price of the first quote in the interval
+     */
+    public final BigDecimal getOpen() {
+        return open;
+    }
+
+    /**
+     * @return the highest price in the interval
+     */
+    public final BigDecimal getHigh() {
+        return high;
+    }
+
+    /**
+     * @return the lowest price in the interval
+     */
+    public final BigDecimal getLow() {
+        return low;
+    }
+
+    /**
+     * @return the price of the last quote in the interval
+     */
+    public final BigDecimal getClose() {
+        return close;
+    }
+
+    /**
+     * @return the number of quotes the interval was aggregated from, or {@link #UNKNOWN_COUNT} for a bar
+     * reported already aggregated by a source which does not tell how many quotes it summarizes
+     */
+    public final int getCount() {
+        return count;
+    }
+
+    /**
+     * @return a String containing the formatted values of the fields of this instance
+     */
+    @Override
+    public String toString() {
+        NumberFormat format = NumberFormat.getCurrencyInstance();
+        return " [ " + getSymbol() + " " + time.toString(StockQuote.getDateFormatter())
+                + " O " + format.format(open) + " H " + format.format(high)
+                + " L " + format.format(low) + " C " + format.format(close) + " (" + count + ") ] ";
+    }
+}
@@ -1,12 +1,16 @@
 package com.github.rjbx.demo.stocks.service;
 
 import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.model.StockQuoteBar;
 import com.github.rjbx.demo.stocks.utility.Interval;
 import org.apache.http.annotation.Immutable;
 
 import org.joda.time.DateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.Random;
 import java.math.BigDecimal;
 
@@ -41,14 +45,11 @@ public final class BasicStockService implements StockService {
      * @return a {@code List} of {@code StockQuote} instances
      */
     public final List<StockQuote> getQuote(String symbol, DateTime startRange, DateTime endRange) {
-        // defensively copies parameter values of mutable objects
         List<StockQuote> quotes = new ArrayList<StockQuote>();
-        DateTime time = new DateTime(startRange);
-        // fetch data request is source agnostic
-        while (time.isBefore(endRange)) {
-            quotes.add(new StockQuote(time, startPrice, symbol));
-            startPrice = startPrice.add(new BigDecimal(new Random().nextInt(10) - 3.37));
-            time = time.plusDays(1);
+        try (GeneratedQuoteCursor cursor = getQuoteCursor(symbol, startRange, endRange)) {
+            while (cursor.next()) {
+                quotes.add(cursor.get());
+            }
         }
         return quotes;
     }
@@ -62,15 +63,110 @@ public final class BasicStockService implements StockService {
      * @return a {@code List} of {@code StockQuote} instances
      */
     public final List<StockQuote> getQuote(String symbol, DateTime startRange, DateTime endRange, Interval interval) {
-        // defensively copies parameter values of mutable objects
         List<StockQuote> quotes = new ArrayList<StockQuote>();
-        DateTime time = new DateTime(startRange);
-        // fetch data request is source agnostic
-        while (time.isBefore(endRange)) {
-            quotes.add(new StockQuote(time, startPrice, symbol));
-            startPrice = startPrice.add(new BigDecimal(new Random().nextInt(10) - 3.37));
-            time = time.plusDays(1);
+        try (GeneratedQuoteCursor cursor = getQuoteCursor(symbol, startRange, endRange)) {
+            while (cursor.next()) {
+                quotes.add(cursor.get());
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Gets today's {@code StockQuote} instance for each of the given symbols
+     * @param symbols symbols for the companies issuing the stocks
+     * @return a {@code Map} from each symbol to its {@code StockQuote}, in the order of the symbols
+     */
+    public final Map<String, StockQuote> getQuotes(Collection<String> symbols) {
+        Map<String, StockQuote> quotes = new LinkedHashMap<String, StockQuote>();
+        for (String symbol : symbols) {
+            quotes.put(symbol, getQuote(symbol));
+        }
+        return quotes;
+    }
+
+    /**
+     * Gets the {@code StockQuote} instances of each of the given symbols within the given date range
+     * @param symbols symbols for the companies issuing the stocks
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @return a {@code Map} from each symbol with quotes in the range to its {@code List} of {@code StockQuote} instances
+     */
+    public final Map<String, List<StockQuote>> getQuotes(Collection<String> symbols, DateTime startRange, DateTime endRange) {
+        Map<String, List<StockQuote>> quotes = new LinkedHashMap<String, List<StockQuote>>();
+        for (String symbol : symbols) {
+            List<StockQuote> symbolQuotes = getQuote(symbol, startRange, endRange);
+            if (!symbolQuotes.isEmpty()) {
+                quotes.put(symbol, symbolQuotes);
+            }
         }
         return quotes;
     }
+
+    /**
+     * Opens a cursor which generates one {@code StockQuote} per day of the given date range as it advances
+     * @param symbol symbol for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @return a {@code StockQuoteCursor} positioned before the first quote of the range
+     */
+    public final GeneratedQuoteCursor getQuoteCursor(String symbol, DateTime startRange, DateTime endRange) {
+        return new GeneratedQuoteCursor(symbol, startRange, endRange);
+    }
+
+    /**
+     * Gets the {@code List} of {@code StockQuoteBar} instances summarizing each interval of the given date range
+     * @param symbol symbol for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @param interval length of each interval summarized by a bar
+     * @return a {@code List} of {@code StockQuoteBar} instances
+     */
+    public final List<StockQuoteBar> getQuoteBars(String symbol, DateTime startRange, DateTime endRange, Interval interval) {
+        return StockQuoteBar.fromQuotes(getQuote(symbol, startRange, endRange), startRange, interval);
+    }
+
+    /**
+     * This class generates quotes lazily, so that only the current quote of a range is held in memory
+     */
+    public static final class GeneratedQuoteCursor implements StockQuoteCursor {
+        // fields of this class
+        private final String symbol;
+        private final DateTime endRange;
+        private DateTime time;
+        private StockQuote current;
+
+        // defensively copies parameter values of mutable objects
+        private GeneratedQuoteCursor(String symbol, DateTime startRange, DateTime endRange) {
+            this.symbol = symbol;
+            this.endRange = new DateTime(endRange);
+            this.time = new DateTime(startRange);
+        }
+
+        @Override
+        public boolean next() {
+            current = null;
+            // fetch data request is source agnostic
+            if (time.isBefore(endRange)) {
+                current = new StockQuote(time, startPrice, symbol);
+                startPrice = startPrice.add(new BigDecimal(new Random().nextInt(10) - 3.37));
+                time = time.plusDays(1);
+            }
+            return current != null;
+        }
+
+        @Override
+        public StockQuote get() {
+            if (current == null) {
+                throw new IllegalStateException("Cursor is not positioned on a quote");
+            }
+            return current;
+        }
+
+        @Override
+        public void close() {
+            current = null;
+            time = endRange;
+        }
+    }
 }
@@ -3,23 +3,38 @@ package com.github.rjbx.demo.stocks.service;
 import com.github.rjbx.demo.stocks.model.DatabasePerson;
 import com.github.rjbx.demo.stocks.model.DatabasePersonStock;
 import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
-import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.HolderIndex;
 import com.github.rjbx.demo.stocks.utility.PersonServiceException;
+import com.github.rjbx.demo.stocks.utility.SymbolDictionary;
+import com.github.rjbx.demo.stocks.utility.UnitOfWork;
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.Query;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.transform.Transformers;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class is a concrete implementation of PersonService that reads data from a database.
+ * Each method joins the {@code UnitOfWork} of the calling thread, so that a caller which opens one around several calls
+ * serves all of them from a single session; otherwise each call opens and closes a session of its own.
+ * A method which only reads opens a read-only unit, which may be served by a read replica.
  */
 public class DatabasePersonService implements PersonService {
     // fields of this class
     public static final DatabasePersonService INSTANCE = new DatabasePersonService();
+    public static final String STOCK_SYMBOLS_CACHE_REGION = "personStockSymbols";
+    // selects the id of each person with the symbol itself, so that neither association is loaded row by row
+    private static final String SELECT_STOCK_SYMBOLS_OF_PERSONS = "select personStock.person.id, stockSymbol"
+            + " from DatabasePersonStock personStock join personStock.stockSymbol stockSymbol"
+            + " where personStock.person.id in (:personIds) order by personStock.id";
 
     // hides the constructor so that new instances are build through the factory class
     protected DatabasePersonService() {
@@ -28,32 +43,88 @@ public class DatabasePersonService implements PersonService {
     /**
      * Gets a list of all persons stored in the "people" database.
      * Changes made by mutating objects in the returned list do not propagate to the database.
+     * Callers walking a large table should read it in pages with {@link #getPersons(int, int)} instead.
      * @return a list of Person instances
      * @throws PersonServiceException if a service can not perform the requested operation
      */
     public final List<DatabasePerson> getPersons() throws PersonServiceException {
-        Session session = DatabaseUtils.getSessionFactory().openSession();
-        List<DatabasePerson> persons = null;
-        Transaction transaction = null;
-        try {
+        try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
             // assigns all instances of Person within session to Criteria
             // then converts Criteria to a list of the criteria type which is Person.class
-            transaction = session.beginTransaction();
-            Criteria criteria = session.createCriteria(DatabasePerson.class);
+            Criteria criteria = work.getSession().createCriteria(DatabasePerson.class);
 
-            @SuppressWarnings("unchecked") List<DatabasePerson> list = criteria.list();
-            persons = list;
+            @SuppressWarnings("unchecked") List<DatabasePerson> persons = criteria.list();
+            work.commit();
+            return persons;
+        } catch (HibernateException e) {
+            throw new PersonServiceException("Could not get Person data. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets one page of the persons stored in the "people" database, ordered by id.
+     * The page is found by seeking the primary key past the given id rather than by skipping rows,
+     * so every page costs the same however deep into the table it lies.
+     * @param afterId the id after which the page starts; 0 for the first page
+     * @param limit the greatest number of persons in the page
+     * @return a list of at most {@code limit} Person instances
+     * @throws PersonServiceException if a service can not perform the requested operation
+     */
+    public final List<DatabasePerson> getPersons(int afterId, int limit) throws PersonServiceException {
+        try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+            Criteria criteria = createPageCriteria(work, afterId, limit);
+            criteria.setReadOnly(true);
+
+            @SuppressWarnings("unchecked") List<DatabasePerson> persons = criteria.list();
+            work.commit();
+            return persons;
+        } catch (HibernateException e) {
+            throw new PersonServiceException("Could not get Person data. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets one page of the ids and names of the persons stored in the "people" database, ordered by id.
+     * Only the projected columns are read, and the rows are copied into unmanaged instances
+     * which the session neither tracks nor puts in the second-level cache.
+     * @param afterId the id after which the page starts; 0 for the first page
+     * @param limit the greatest number of persons in the page
+     * @return a list of at most {@code limit} Person instances holding only their ids and names
+     * @throws PersonServiceException if a service can not perform the requested operation
+     */
+    public final List<DatabasePerson> getPersonNames(int afterId, int limit) throws PersonServiceException {
+        try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+            Criteria criteria = createPageCriteria(work, afterId, limit);
+            criteria.setProjection(Projections.projectionList()
+                    .add(Projections.id(), "id")
+                    .add(Projections.property("firstName"), "firstName")
+                    .add(Projections.property("lastName"), "lastName"));
+            criteria.setResultTransformer(Transformers.aliasToBean(DatabasePerson.class));
+
+            @SuppressWarnings("unchecked") List<DatabasePerson> persons = criteria.list();
+            work.commit();
+            return persons;
         } catch (HibernateException e) {
-            if (transaction != null && transaction.isActive()) {
-                transaction.rollback();  // close transaction
-            }
             throw new PersonServiceException("Could not get Person data. " + e.getMessage(), e);
-        } finally {
-            if (transaction != null && transaction.isActive()) {
-                transaction.commit();
-            }
         }
-        return persons;
+    }
+
+    /**
+     * Creates a criteria selecting the persons with ids greater than the given id, in order of id, up to the given limit
+     * @param work the unit of work to create the criteria in
+     * @param afterId the id after which the page starts
+     * @param limit the greatest number of persons in the page
+     * @return a {@code Criteria} over {@code DatabasePerson}
+     */
+    private static Criteria createPageCriteria(UnitOfWork work, int afterId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        Criteria criteria = work.getSession().createCriteria(DatabasePerson.class);
+        criteria.add(Restrictions.gt("id", afterId));
+        criteria.addOrder(Order.asc("id"));
+        criteria.setMaxResults(limit);
+        return criteria;
     }
 
     /**
@@ -62,58 +133,75 @@ public class DatabasePersonService implements PersonService {
      * @throws PersonServiceException if a service can not perform the requested operation
      */
     public final void addOrUpdatePerson(DatabasePerson person) throws PersonServiceException {
-        Session session = DatabaseUtils.getSessionFactory().openSession();
-        Transaction transaction = null;
-        try {
+        try (UnitOfWork work = UnitOfWork.begin()) {
             // updates instance of Person if already exists within table
             // or adds as last row of people table
-            transaction = session.beginTransaction();
-            session.saveOrUpdate(person);
-            transaction.commit();
+            work.getSession().saveOrUpdate(person);
+            work.commit();
         } catch (HibernateException e) {
-            if (transaction != null && transaction.isActive()) {
-                transaction.rollback();  // close transaction
-            }
-        } finally {
-            if (transaction != null && transaction.isActive()) {
-                transaction.commit();
-            }
+            throw new PersonServiceException("Could not add or update Person data. " + e.getMessage(), e);
         }
     }
 
     /**
-     * Gets a list of all of the stocks a person is interested in
+     * Gets a list of all of the stocks a person is interested in.
+     * Repeated calls for the same person are answered from the query and second-level caches.
      * @return a list of Strings representing stock symbols
      * @throws PersonServiceException if a service can not perform the requested operation
      */
     public final List<DatabaseStockSymbol> getStockSymbols(DatabasePerson person) throws PersonServiceException {
-        Session session =  DatabaseUtils.getSessionFactory().openSession();
-        Transaction transaction = null;
-        List<DatabaseStockSymbol> stockSymbols = null;
-        try {
+        try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
             // assigns from the session to Criteria all instances of PersonStock containing the person parameter value
             // then converts Criteria to a list of the criteria type which is PersonStock.class
-            // and gets from each PersonStock instance the associated stock stockSymbol
-            transaction = session.beginTransaction();
-            Criteria criteria = session.createCriteria(DatabasePersonStock.class);
+            // and gets from each PersonStock instance the associated stock stockSymbol;
+            // the result is kept in the query cache until the "person_stocks" table is next written
+            Criteria criteria = work.getSession().createCriteria(DatabasePersonStock.class);
             criteria.add(Restrictions.eq("person", person));
+            criteria.setCacheable(true);
+            criteria.setCacheRegion(STOCK_SYMBOLS_CACHE_REGION);
 
             @SuppressWarnings("unchecked") List<DatabasePersonStock> list = criteria.list();
-            stockSymbols = new ArrayList<DatabaseStockSymbol>();
+            List<DatabaseStockSymbol> stockSymbols = new ArrayList<DatabaseStockSymbol>();
             for (DatabasePersonStock personStock : list) {
                 stockSymbols.add(personStock.getStockSymbol());
             }
-            transaction.commit();
+            work.commit();
+            return stockSymbols;
         } catch (HibernateException e) {
-            if (transaction != null && transaction.isActive()) {
-                transaction.rollback();  // close transaction
-            }
-        } finally {
-            if (transaction != null && transaction.isActive()) {
-                transaction.commit();
+            throw new PersonServiceException("Could not get StockSymbol data. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the stocks each of the given people is interested in with a single query,
+     * which reads the symbols together with the rows that assign them instead of selecting each symbol on its own
+     * @param persons the people whose stocks to get
+     * @return a {@code Map} from the id of each person to the list of stock symbols of that person, in the order of the persons;
+     * a person without stocks maps to an empty list
+     * @throws PersonServiceException if a service can not perform the requested operation
+     */
+    public final Map<Integer, List<DatabaseStockSymbol>> getStockSymbols(Collection<DatabasePerson> persons) throws PersonServiceException {
+        Map<Integer, List<DatabaseStockSymbol>> stockSymbols = new LinkedHashMap<Integer, List<DatabaseStockSymbol>>();
+        for (DatabasePerson person : persons) {
+            stockSymbols.put(person.getId(), new ArrayList<DatabaseStockSymbol>());
+        }
+        if (stockSymbols.isEmpty()) {
+            return stockSymbols;
+        }
+        try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+            Query query = work.getSession().createQuery(SELECT_STOCK_SYMBOLS_OF_PERSONS);
+            query.setParameterList("personIds", stockSymbols.keySet());
+            query.setReadOnly(true);
+
+            @SuppressWarnings("unchecked") List<Object[]> rows = query.list();
+            for (Object[] row : rows) {
+                stockSymbols.get((Integer) row[0]).add((DatabaseStockSymbol) row[1]);
             }
+            work.commit();
+            return stockSymbols;
+        } catch (HibernateException e) {
+            throw new PersonServiceException("Could not get StockSymbol data. " + e.getMessage(), e);
         }
-        return stockSymbols;
     }
 
     /**
@@ -122,28 +210,28 @@ public class DatabasePersonService implements PersonService {
      * @param person The person to whom the stockSymbol is assigned
      * @throws PersonServiceException if a service can not perform the requested operation
      */
-    public final void addStockToPerson(DatabaseStockSymbol stockSymbol, DatabasePerson person) throws PersonServiceException {
-        Session session =  DatabaseUtils.getSessionFactory().openSession();
-        Transaction transaction = null;
-        try {
+    public final void addStockToPerson(final DatabaseStockSymbol stockSymbol, final DatabasePerson person) throws PersonServiceException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
             // updates instance of PersonStock if already exists within table
             // or adds as last row of personStock table
-            transaction = session.beginTransaction();
-            session.saveOrUpdate(stockSymbol);
+            final boolean symbolCreated = DatabaseStockService.saveSymbolIfAbsent(work.getSession(), stockSymbol);
             DatabasePersonStock personStock = new DatabasePersonStock();
             personStock.setStockSymbol(stockSymbol);
             personStock.setPerson(person);
-            session.saveOrUpdate(stockSymbol);
-            session.saveOrUpdate(personStock);
-            transaction.commit();
+            work.getSession().saveOrUpdate(personStock);
+            // the in-memory indexes learn of the new rows only once an enclosing unit of work has committed them
+            work.afterCommit(new Runnable() {
+                @Override
+                public void run() {
+                    if (symbolCreated) {
+                        SymbolDictionary.INSTANCE.register(stockSymbol.getSymbol(), stockSymbol.getId());
+                    }
+                    HolderIndex.INSTANCE.add(stockSymbol.getId(), person.getId());
+                }
+            });
+            work.commit();
         } catch (HibernateException e) {
-            if (transaction != null && transaction.isActive()) {
-                transaction.rollback();  // close transaction
-            }
-        } finally {
-            if (transaction != null && transaction.isActive()) {
-                transaction.commit();
-            }
+            throw new PersonServiceException("Could not add StockSymbol to Person. " + e.getMessage(), e);
         }
     }
 }
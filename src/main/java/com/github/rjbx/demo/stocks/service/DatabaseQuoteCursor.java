@@ -0,0 +1,110 @@
+package com.github.rjbx.demo.stocks.service;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.utility.StockServiceException;
+import org.joda.time.DateTime;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This class steps through the rows of a quote query whose result columns are "time" and "price".
+ * The cursor owns the connection, statement and result set it reads from and releases all three on close,
+ * so the connection stays borrowed from the pool until the cursor is closed.
+ * @author Bob Basmaji
+ */
+final class DatabaseQuoteCursor implements StockQuoteCursor {
+    // fields of this class
+    private final Connection connection;
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final String symbol;
+    private StockQuote current;
+    private boolean closed;
+
+    /**
+     * Constructs a new {@code DatabaseQuoteCursor} instance
+     * @param connection the connection the query was executed on
+     * @param statement the executed statement
+     * @param resultSet the result of the statement, positioned before its first row
+     * @param symbol the symbol to assign to each {@code StockQuote} read
+     */
+    DatabaseQuoteCursor(Connection connection, Statement statement, ResultSet resultSet, String symbol) {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.symbol = symbol;
+    }
+
+    @Override
+    public boolean next() throws StockServiceException {
+        current = null;
+        if (closed) {
+            return false;
+        }
+        try {
+            if (resultSet.next()) {
+                current = new StockQuote(new DateTime(resultSet.getTimestamp(1)), resultSet.getBigDecimal(2), symbol);
+            }
+        } catch (SQLException e) {
+            close();
+            throw new StockServiceException(e.getMessage(), e);
+        }
+        return current != null;
+    }
+
+    @Override
+    public StockQuote get() {
+        if (current == null) {
+            throw new IllegalStateException("Cursor is not positioned on a quote");
+        }
+        return current;
+    }
+
+    @Override
+    public void close() throws StockServiceException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        // closes the result set, statement and connection in that order, even if closing one of them fails;
+        // the first failure is reported and the later ones are suppressed by it
+        SQLException failure = null;
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            failure = e;
+        } finally {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                failure = keepFirst(failure, e);
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    failure = keepFirst(failure, e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw new StockServiceException(failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * @param failure the first failure to close a resource, or null if there was none
+     * @param e a later failure to close a resource
+     * @return the first failure, which suppresses the later one
+     */
+    private static SQLException keepFirst(SQLException failure, SQLException e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+}
@@ -3,27 +3,69 @@ package com.github.rjbx.demo.stocks.service;
 import com.github.rjbx.demo.stocks.model.DatabaseStockQuote;
 import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
 import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.model.StockQuoteBar;
 import com.github.rjbx.demo.stocks.utility.*;
 import org.apache.http.annotation.Immutable;
 
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.jdbc.ReturningWork;
 import org.joda.time.DateTime;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class defines methods for getting stock quotes from a database, and implements the {@code StockService} interface.
+ * Queries borrow their connections through {@code DatabaseUtils.getReadConnection()}, so they may be served by a read replica,
+ * while imports always write to the primary.
  * @author Bob Basmaji
  */
 @Immutable
 public class DatabaseStockService implements StockService {
     // fields of this class
     public static final DatabaseStockService INSTANCE = new DatabaseStockService();
+    // quote queries take the symbol id resolved by the symbol dictionary and select only the columns read,
+    // so that the driver can cache one server-side statement per connection for each of them;
+    // they are answered from the (symbol_id, time, price) index in time order, however long the history is
+    private static final String SELECT_LATEST_QUOTE = "select time, price from quotes"
+            + " where symbol_id = ? order by time desc limit 1";
+    private static final String SELECT_QUOTES_IN_RANGE = "select time, price from quotes"
+            + " where symbol_id = ? and time between ? and ? order by time";
+    private static final String SELECT_QUOTE_ID = "select id from quotes where symbol_id = ? and time = ?";
+    // bulk imports upsert on the unique (symbol_id, time) key; time is assigned explicitly
+    // so that MySQL does not stamp the first TIMESTAMP column of an updated row with the current time;
+    // ids come from the same allocator as the ids Hibernate assigns, and an updated row keeps its id
+    private static final String UPSERT_QUOTE = "insert into quotes (id, symbol_id, time, price) values (?, ?, ?, ?)"
+            + " on duplicate key update price = values(price), time = values(time)";
+    private static final String INSERT_SYMBOL = "insert into stock_symbols (id, symbol) values (?, ?)";
+    private static final String QUOTES_TABLE = "quotes";
+    private static final String SYMBOLS_TABLE = "stock_symbols";
+    private static final int COMMIT_TOTAL = 0;
+    private static final int COMMIT_MAX = 1;
+    // batch queries take one placeholder per symbol id in place of %s; see idPlaceholders
+    private static final String SELECT_LATEST_QUOTES = "select q.symbol_id, q.time, q.price from quotes q"
+            + " join (select symbol_id, max(time) as time from quotes where symbol_id in (%s) group by symbol_id) m"
+            + " on q.symbol_id = m.symbol_id and q.time = m.time";
+    private static final String SELECT_QUOTES_OF_SYMBOLS_IN_RANGE = "select symbol_id, time, price from quotes"
+            + " where symbol_id in (%s) and time between ? and ? order by symbol_id, time";
+    // groups the range into intervals counted from its start, then joins back for the first and last price of each
+    private static final String SELECT_QUOTE_BARS = "select b.bucket, b.high, b.low, b.quotes, o.price, c.price, b.first_time from"
+            + " (select floor(timestampdiff(SECOND, ?, time) / ?) as bucket, min(time) as first_time, max(time) as last_time,"
+            + " max(price) as high, min(price) as low, count(*) as quotes"
+            + " from quotes where symbol_id = ? and time between ? and ? group by bucket) b"
+            + " join quotes o on o.symbol_id = ? and o.time = b.first_time"
+            + " join quotes c on c.symbol_id = ? and c.time = b.last_time"
+            + " order by b.bucket";
 
     // hides the constructor so that new instances are build through the factory class
     protected DatabaseStockService() {
@@ -36,29 +78,125 @@ public class DatabaseStockService implements StockService {
      * @throws StockServiceException
      */
     public final StockQuote getQuote(String symbol) throws StockServiceException {
-        List<StockQuote> stockQuotes = null;
-        try {
-            Connection connection = DatabaseUtils.getConnection();
-            Statement statement = connection.createStatement();
-            String queryString = "select id from stock_symbols where symbol = '" + symbol + "'";
-            ResultSet resultSet = statement.executeQuery(queryString);
-            resultSet.next();
-            queryString = "select * from quotes where symbol_id = '" + resultSet.getInt("id") + "'";
-            resultSet = statement.executeQuery(queryString);
-            stockQuotes = new ArrayList<StockQuote>(resultSet.getFetchSize());
-            while(resultSet.next()) {
-                BigDecimal price = resultSet.getBigDecimal("price");
-                Timestamp timestamp = resultSet.getTimestamp("time");
-                DateTime time = new DateTime(timestamp);
-                stockQuotes.add(new StockQuote(time, price, symbol));
+        // answers from memory when both the symbol and its newest quote are known
+        int symbolId = SymbolDictionary.INSTANCE.isLoaded() ? SymbolDictionary.INSTANCE.lookup(symbol) : SymbolDictionary.NO_ID;
+        StockQuote stockQuote = symbolId == SymbolDictionary.NO_ID ? null : LatestQuoteTable.INSTANCE.get(symbolId);
+        if (stockQuote != null) {
+            return stockQuote;
+        }
+        try (Connection connection = DatabaseUtils.getReadConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_LATEST_QUOTE)) {
+            symbolId = resolveSymbolId(connection, symbol);
+            statement.setInt(1, symbolId);
+            List<StockQuote> stockQuotes = readQuotes(statement, symbol);
+            if (!stockQuotes.isEmpty()) {
+                stockQuote = LatestQuoteTable.INSTANCE.load(symbolId, stockQuotes.get(0));
             }
         } catch (DatabaseConnectionException | SQLException e) {
             throw new StockServiceException(e.getMessage(), e);
         }
-        if (stockQuotes.isEmpty()) {
+        if (stockQuote == null) {
             throw new StockServiceException("No instances of " + symbol + " found in the selected range");
         }
-        return stockQuotes.get(stockQuotes.size() - 1);
+        return stockQuote;
+    }
+
+    /**
+     * Gets today's {@code StockQuote} instance for each of the given symbols.
+     * Quotes held by the latest quote table are answered from memory; the rest are read with a single query.
+     * @param symbols symbols for the companies issuing the stocks
+     * @return a {@code Map} from each symbol with a quote to its {@code StockQuote}, in the order of the symbols
+     * @throws StockServiceException
+     */
+    public final Map<String, StockQuote> getQuotes(Collection<String> symbols) throws StockServiceException {
+        Map<String, StockQuote> found = new HashMap<String, StockQuote>();
+        List<String> missing = new ArrayList<String>();
+        for (String symbol : symbols) {
+            int symbolId = SymbolDictionary.INSTANCE.isLoaded() ? SymbolDictionary.INSTANCE.lookup(symbol) : SymbolDictionary.NO_ID;
+            StockQuote stockQuote = symbolId == SymbolDictionary.NO_ID ? null : LatestQuoteTable.INSTANCE.get(symbolId);
+            if (stockQuote != null) {
+                found.put(symbol, stockQuote);
+            } else {
+                missing.add(symbol);
+            }
+        }
+        if (!missing.isEmpty()) {
+            try (Connection connection = DatabaseUtils.getReadConnection()) {
+                Map<Integer, String> symbolsById = resolveSymbolIds(connection, missing);
+                if (!symbolsById.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            String.format(SELECT_LATEST_QUOTES, idPlaceholders(symbolsById.size())))) {
+                        setIds(statement, 1, symbolsById.keySet());
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                // quotes sharing the latest time of a symbol join more than once; the first row is kept
+                                int symbolId = resultSet.getInt(1);
+                                String symbol = symbolsById.get(symbolId);
+                                if (!found.containsKey(symbol)) {
+                                    StockQuote stockQuote = new StockQuote(new DateTime(resultSet.getTimestamp(2)), resultSet.getBigDecimal(3), symbol);
+                                    found.put(symbol, LatestQuoteTable.INSTANCE.load(symbolId, stockQuote));
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (DatabaseConnectionException | SQLException e) {
+                throw new StockServiceException(e.getMessage(), e);
+            }
+        }
+        Map<String, StockQuote> stockQuotes = new LinkedHashMap<String, StockQuote>();
+        for (String symbol : symbols) {
+            if (found.containsKey(symbol)) {
+                stockQuotes.put(symbol, found.get(symbol));
+            }
+        }
+        return stockQuotes;
+    }
+
+    /**
+     * Gets the {@code StockQuote} instances of each of the given symbols within the given date range with a single query
+     * @param symbols symbols for the companies issuing the stocks
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @return a {@code Map} from each symbol with quotes in the range to its {@code List} of {@code StockQuote} instances,
+     * in the order of the symbols
+     * @throws StockServiceException
+     */
+    public final Map<String, List<StockQuote>> getQuotes(Collection<String> symbols, DateTime startRange, DateTime endRange) throws StockServiceException {
+        Map<String, List<StockQuote>> stockQuotes = new LinkedHashMap<String, List<StockQuote>>();
+        for (String symbol : symbols) {
+            stockQuotes.put(symbol, new ArrayList<StockQuote>());
+        }
+        if (!stockQuotes.isEmpty()) {
+            try (Connection connection = DatabaseUtils.getReadConnection()) {
+                Map<Integer, String> symbolsById = resolveSymbolIds(connection, stockQuotes.keySet());
+                if (!symbolsById.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            String.format(SELECT_QUOTES_OF_SYMBOLS_IN_RANGE, idPlaceholders(symbolsById.size())),
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                        statement.setFetchSize(DatabaseUtils.getFetchSize());
+                        int index = setIds(statement, 1, symbolsById.keySet());
+                        statement.setTimestamp(index, new Timestamp(startRange.getMillis()));
+                        statement.setTimestamp(index + 1, new Timestamp(endRange.getMillis()));
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                String symbol = symbolsById.get(resultSet.getInt(1));
+                                stockQuotes.get(symbol).add(new StockQuote(new DateTime(resultSet.getTimestamp(2)), resultSet.getBigDecimal(3), symbol));
+                            }
+                        }
+                    }
+                }
+            } catch (DatabaseConnectionException | SQLException e) {
+                throw new StockServiceException(e.getMessage(), e);
+            }
+        }
+        // symbols without quotes in the range are left out of the result
+        for (Iterator<List<StockQuote>> iterator = stockQuotes.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isEmpty()) {
+                iterator.remove();
+            }
+        }
+        return stockQuotes;
     }
 
     /**
@@ -70,31 +208,50 @@ public class DatabaseStockService implements StockService {
      * @throws StockServiceException
      */
     public final List<StockQuote> getQuote(String symbol, DateTime startRange, DateTime endRange) throws StockServiceException {
-        List<StockQuote> stockQuotes = null;
-        try {
-            Connection connection = DatabaseUtils.getConnection();
-            Statement statement = connection.createStatement();
-            String queryString = "select id from stock_symbols where symbol = '" + symbol + "'";
-            ResultSet resultSet = statement.executeQuery(queryString);
-            resultSet.next();
-            queryString = "select * from quotes where symbol_id = '" + resultSet.getInt("id") + "' and time between '" + startRange.toString(StockQuote.DATE_PATTERN) + "' and '" + endRange.toString(StockQuote.DATE_PATTERN)+ "'";
-            resultSet = statement.executeQuery(queryString);
-            stockQuotes = new ArrayList<StockQuote>(resultSet.getFetchSize());
-            while(resultSet.next()) {
-                BigDecimal price = resultSet.getBigDecimal("price");
-                Timestamp timestamp = resultSet.getTimestamp("time");
-                DateTime time = new DateTime(timestamp);
-                stockQuotes.add(new StockQuote(time, price, symbol));
-            }
-        } catch (DatabaseConnectionException | SQLException e) {
-            throw new StockServiceException(e.getMessage(), e);
-        }
+        List<StockQuote> stockQuotes = StockQuoteCursors.toList(getQuoteCursor(symbol, startRange, endRange));
         if (stockQuotes.isEmpty()) {
             throw new StockServiceException("No instances of " + symbol + " found in the selected range");
         }
         return stockQuotes;
     }
 
+    /**
+     * Opens a cursor over the {@code StockQuote} instances for the given symbol and date range.
+     * Rows are read through a forward-only, read-only result set that the driver fetches in batches of the configured
+     * fetch size, so the cursor holds a pooled connection until it is closed.
+     * @param symbol abbreviation for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @return a {@code StockQuoteCursor} positioned before the first quote of the range
+     * @throws StockServiceException
+     */
+    public final StockQuoteCursor getQuoteCursor(String symbol, DateTime startRange, DateTime endRange) throws StockServiceException {
+        Connection connection = null;
+        StockQuoteCursor cursor = null;
+        try {
+            connection = DatabaseUtils.getReadConnection();
+            PreparedStatement statement = connection.prepareStatement(SELECT_QUOTES_IN_RANGE,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(DatabaseUtils.getFetchSize());
+            statement.setInt(1, resolveSymbolId(connection, symbol));
+            statement.setTimestamp(2, new Timestamp(startRange.getMillis()));
+            statement.setTimestamp(3, new Timestamp(endRange.getMillis()));
+            cursor = new DatabaseQuoteCursor(connection, statement, statement.executeQuery(), symbol);
+            return cursor;
+        } catch (DatabaseConnectionException | SQLException e) {
+            throw new StockServiceException(e.getMessage(), e);
+        } finally {
+            // returns the connection to the pool, which also closes the statement prepared on it, if no cursor took it over
+            if (cursor == null && connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    // the original failure is more useful to the caller than the failure to close
+                }
+            }
+        }
+    }
+
     /**
      * Gets the {@code List} of {@code StockQuote} instances for the given symbol, date range and interval
      * @param symbol abbreviation for the company issuing the stock
@@ -105,32 +262,152 @@ public class DatabaseStockService implements StockService {
      * @throws StockServiceException
      */
     public final List<StockQuote> getQuote(String symbol, DateTime startRange, DateTime endRange, Interval interval) throws StockServiceException{
-        List<StockQuote> stockQuotes = null;
-        try {
-            Connection connection = DatabaseUtils.getConnection();
-            Statement statement = connection.createStatement();
-            String queryString = "select id from stock_symbols where symbol = '" + symbol + "'";
-            ResultSet resultSet = statement.executeQuery(queryString);
-            resultSet.next();
-            queryString = "select * from quotes where symbol_id = '" + resultSet.getInt("id") + "' and time between '" + startRange.toString(StockQuote.DATE_PATTERN) + "' and '" + endRange.toString(StockQuote.DATE_PATTERN) + "'";
-            resultSet = statement.executeQuery(queryString);
-            stockQuotes = new ArrayList<StockQuote>(resultSet.getFetchSize());
-            DateTime intervalEnd = new DateTime(startRange);
-            while (resultSet.next()) {
-                BigDecimal price = resultSet.getBigDecimal("price");
-                Timestamp timestamp = resultSet.getTimestamp("time");
-                DateTime time = new DateTime(timestamp);
-                if (!time.isBefore(intervalEnd)) {
-                    stockQuotes.add(new StockQuote((DateTime) time, price, symbol));
-                    intervalEnd.plusHours(interval.amount());
+        // samples the opening quote of each interval, at the time it was quoted
+        List<StockQuote> stockQuotes = new ArrayList<StockQuote>();
+        for (StockQuoteBar stockQuoteBar : getQuoteBars(symbol, startRange, endRange, interval)) {
+            stockQuotes.add(new StockQuote(stockQuoteBar.getOpenTime(), stockQuoteBar.getOpen(), symbol));
+        }
+        return stockQuotes;
+    }
+
+    /**
+     * Gets the {@code List} of {@code StockQuoteBar} instances summarizing each interval of the given date range.
+     * Quotes are grouped into intervals by the database, so only one row per interval is transferred.
+     * @param symbol abbreviation for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @param interval length of each interval summarized by a bar
+     * @return a {@code List} of {@code StockQuoteBar} instances
+     * @throws StockServiceException
+     */
+    public final List<StockQuoteBar> getQuoteBars(String symbol, DateTime startRange, DateTime endRange, Interval interval) throws StockServiceException {
+        List<StockQuoteBar> stockQuoteBars = new ArrayList<StockQuoteBar>();
+        Timestamp start = new Timestamp(startRange.getMillis());
+        try (Connection connection = DatabaseUtils.getReadConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_QUOTE_BARS)) {
+            int symbolId = resolveSymbolId(connection, symbol);
+            statement.setTimestamp(1, start);
+            statement.setLong(2, TimeUnit.HOURS.toSeconds(interval.amount()));
+            statement.setInt(3, symbolId);
+            statement.setTimestamp(4, start);
+            statement.setTimestamp(5, new Timestamp(endRange.getMillis()));
+            statement.setInt(6, symbolId);
+            statement.setInt(7, symbolId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                long lastBucket = -1;
+                while (resultSet.next()) {
+                    // quotes sharing the first or last time of an interval join more than once; the first row is kept
+                    long bucket = resultSet.getLong(1);
+                    if (bucket != lastBucket) {
+                        DateTime time = startRange.plusHours((int) bucket * interval.amount());
+                        DateTime openTime = new DateTime(resultSet.getTimestamp(7));
+                        stockQuoteBars.add(new StockQuoteBar(time, openTime, resultSet.getBigDecimal(5), resultSet.getBigDecimal(2),
+                                resultSet.getBigDecimal(3), resultSet.getBigDecimal(6), resultSet.getInt(4), symbol));
+                        lastBucket = bucket;
+                    }
                 }
             }
         } catch (DatabaseConnectionException | SQLException e) {
             throw new StockServiceException(e.getMessage(), e);
         }
-        if (stockQuotes.isEmpty()) {
+        if (stockQuoteBars.isEmpty()) {
+            throw new StockServiceException("No instances of " + symbol + " found in the selected range");
+        }
+        return stockQuoteBars;
+    }
+
+    /**
+     * Gets the id of a symbol through the symbol dictionary
+     * @param connection the connection to query with if the symbol is not in memory
+     * @param symbol the symbol for the company issuing the stock
+     * @return the id of the row storing the symbol
+     * @throws SQLException
+     * @throws StockServiceException if the symbol is not stored
+     */
+    private static int resolveSymbolId(Connection connection, String symbol) throws SQLException, StockServiceException {
+        int symbolId = SymbolDictionary.INSTANCE.resolve(connection, symbol);
+        if (symbolId == SymbolDictionary.NO_ID) {
             throw new StockServiceException("No instances of " + symbol + " found in the selected range");
         }
+        return symbolId;
+    }
+
+    /**
+     * Gets the ids of symbols through the symbol dictionary, leaving out symbols which are not stored
+     * @param connection the connection to query with if a symbol is not in memory
+     * @param symbols the symbols for the companies issuing the stocks
+     * @return a {@code Map} from the id of each stored symbol to the symbol, in the order of the symbols
+     * @throws SQLException
+     */
+    private static Map<Integer, String> resolveSymbolIds(Connection connection, Collection<String> symbols) throws SQLException {
+        Map<Integer, String> symbolsById = new LinkedHashMap<Integer, String>();
+        for (String symbol : symbols) {
+            int symbolId = SymbolDictionary.INSTANCE.resolve(connection, symbol);
+            if (symbolId != SymbolDictionary.NO_ID) {
+                symbolsById.put(symbolId, symbol);
+            }
+        }
+        return symbolsById;
+    }
+
+    /**
+     * Builds the placeholder list of an "in" clause for the given number of ids.
+     * The list is padded to the next power of two so that batches of similar size share one cached statement.
+     * @param count the number of ids
+     * @return a comma-separated list of placeholders
+     */
+    private static String idPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < paddedCount(count); i++) {
+            placeholders.append(", ?");
+        }
+        return placeholders.toString();
+    }
+
+    /**
+     * @param count the number of ids of an "in" clause
+     * @return the smallest power of two not less than the count
+     */
+    private static int paddedCount(int count) {
+        return count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+    }
+
+    /**
+     * Binds ids to the placeholders built by {@link #idPlaceholders(int)}, repeating the last id in the padding
+     * @param statement the statement to bind
+     * @param index the index of the first placeholder
+     * @param ids the ids to bind
+     * @return the index of the first parameter after the placeholders
+     * @throws SQLException
+     */
+    private static int setIds(PreparedStatement statement, int index, Collection<Integer> ids) throws SQLException {
+        int last = 0;
+        for (int id : ids) {
+            statement.setInt(index++, id);
+            last = id;
+        }
+        for (int i = ids.size(); i < paddedCount(ids.size()); i++) {
+            statement.setInt(index++, last);
+        }
+        return index;
+    }
+
+    /**
+     * Executes a prepared quote query whose result columns are "time" and "price"
+     * @param statement a {@code PreparedStatement} with all of its parameters set
+     * @param symbol the symbol to assign to each {@code StockQuote} read
+     * @return a {@code List} of {@code StockQuote} instances in the order returned by the query
+     * @throws SQLException
+     */
+    private static List<StockQuote> readQuotes(PreparedStatement statement, String symbol) throws SQLException {
+        List<StockQuote> stockQuotes = new ArrayList<StockQuote>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                DateTime time = new DateTime(resultSet.getTimestamp(1));
+                BigDecimal price = resultSet.getBigDecimal(2);
+                stockQuotes.add(new StockQuote(time, price, symbol));
+            }
+        }
         return stockQuotes;
     }
 
@@ -141,18 +418,25 @@ public class DatabaseStockService implements StockService {
      * @param stockSymbol the symbol of the quote
      * @throws StockServiceException if a service can not perform the requested operation
      */
-    public final void addOrUpdateQuote(DateTime time, BigDecimal price, DatabaseStockSymbol stockSymbol) throws StockServiceException {
+    public final void addOrUpdateQuote(DateTime time, BigDecimal price, final DatabaseStockSymbol stockSymbol) throws StockServiceException {
         Session session =  DatabaseUtils.getSessionFactory().openSession();
         Transaction transaction = null;
+        boolean symbolCreated = false;
+        boolean quoteStored = false;
         try {
-            // updates instance of StockQuote if already exists within table
-            // or adds as last row of personStock table
+            // updates the quote of the symbol at this time if one is already stored, since (symbol_id, time) is unique,
+            // or adds it as the last row of the quotes table
             transaction = session.beginTransaction();
-            session.saveOrUpdate(stockSymbol);
+            symbolCreated = saveSymbolIfAbsent(session, stockSymbol);
             DatabaseStockQuote dbQuote = new DatabaseStockQuote(time, price, stockSymbol);
+            if (!symbolCreated) {
+                dbQuote.setId(findQuoteId(session, stockSymbol.getId(), dbQuote.getTime()));
+            }
             session.saveOrUpdate(dbQuote);
             transaction.commit();
+            quoteStored = true;
         } catch (HibernateException e) {
+            symbolCreated = false;
             if (transaction != null && transaction.isActive()) {
                 transaction.rollback();  // close transaction
                 throw new RuntimeException(e.getMessage());
@@ -161,7 +445,217 @@ public class DatabaseStockService implements StockService {
             if (transaction != null && transaction.isActive()) {
                 transaction.commit();
             }
+            session.close();
+        }
+        if (symbolCreated) {
+            SymbolDictionary.INSTANCE.register(stockSymbol.getSymbol(), stockSymbol.getId());
+        }
+        if (quoteStored) {
+            LatestQuoteTable.INSTANCE.offer(stockSymbol.getId(), new StockQuote(time, price, stockSymbol.getSymbol()));
         }
     }
-}
 
+    /**
+     * Adds or updates many quotes in batches of the size configured in the pool properties file
+     * @param quotes the quotes to store; symbols which are not stored yet are created
+     * @return the number of rows stored and the throughput of the import
+     * @throws StockServiceException if a batch cannot be stored; the batches committed before it remain stored
+     */
+    public final IngestStatistics addQuotes(Collection<StockQuote> quotes) throws StockServiceException {
+        try {
+            return addQuotes(quotes, DatabaseUtils.getBatchSize());
+        } catch (DatabaseConnectionException e) {
+            throw new StockServiceException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds or updates many quotes in batches of the given size
+     * @param quotes the quotes to store; symbols which are not stored yet are created
+     * @param batchSize the number of quotes sent and committed together
+     * @return the number of rows stored and the throughput of the import
+     * @throws StockServiceException if a batch cannot be stored; the batches committed before it remain stored
+     */
+    public final IngestStatistics addQuotes(Collection<StockQuote> quotes, int batchSize) throws StockServiceException {
+        return addQuotes(StockQuoteCursors.fromIterable(quotes), batchSize);
+    }
+
+    /**
+     * Adds or updates the quotes of a cursor in batches of the size configured in the pool properties file,
+     * holding no more than one batch in memory
+     * @param quotes the cursor to read to its end and close; symbols which are not stored yet are created
+     * @return the number of rows stored and the throughput of the import
+     * @throws StockServiceException if the cursor cannot be read or a batch cannot be stored;
+     * the batches committed before it remain stored
+     */
+    public final IngestStatistics addQuotes(StockQuoteCursor quotes) throws StockServiceException {
+        try {
+            return addQuotes(quotes, DatabaseUtils.getBatchSize());
+        } catch (DatabaseConnectionException e) {
+            throw new StockServiceException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds or updates the quotes of a cursor with JDBC batches, upserting on the (symbol_id, time) key and committing
+     * once per batch, instead of opening a session and a transaction for each quote as {@link #addOrUpdateQuote} does
+     * @param quotes the cursor to read to its end and close; symbols which are not stored yet are created
+     * @param batchSize the number of quotes sent and committed together
+     * @return the number of rows stored and the throughput of the import
+     * @throws StockServiceException if the cursor cannot be read or a batch cannot be stored;
+     * the batches committed before it remain stored
+     */
+    public final IngestStatistics addQuotes(StockQuoteCursor quotes, int batchSize) throws StockServiceException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        long startNanos = System.nanoTime();
+        long rows = 0;
+        long batches = 0;
+        // total and slowest time spent committing, indexed by the COMMIT_ constants
+        long[] commitNanos = new long[2];
+        try (StockQuoteCursor source = quotes;
+             Connection connection = DatabaseUtils.getConnection()) {
+            connection.setAutoCommit(false);
+            // symbols created and newest quotes stored by the current batch, published once the batch commits
+            Map<String, Integer> createdSymbols = new HashMap<String, Integer>();
+            Map<Integer, StockQuote> newestQuotes = new HashMap<Integer, StockQuote>();
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_QUOTE)) {
+                int pending = 0;
+                while (source.next()) {
+                    StockQuote quote = source.get();
+                    int symbolId = resolveOrCreateSymbolId(connection, quote.getSymbol(), createdSymbols);
+                    statement.setInt(1, IdAllocator.INSTANCE.next(QUOTES_TABLE));
+                    statement.setInt(2, symbolId);
+                    statement.setTimestamp(3, new Timestamp(quote.getTime().getMillis()));
+                    statement.setBigDecimal(4, quote.getPrice());
+                    statement.addBatch();
+                    StockQuote newest = newestQuotes.get(symbolId);
+                    if (newest == null || !newest.getTime().isAfter(quote.getTime())) {
+                        newestQuotes.put(symbolId, quote);
+                    }
+                    if (++pending == batchSize) {
+                        commitBatch(connection, statement, createdSymbols, newestQuotes, commitNanos);
+                        rows += pending;
+                        batches++;
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    commitBatch(connection, statement, createdSymbols, newestQuotes, commitNanos);
+                    rows += pending;
+                    batches++;
+                }
+            } catch (SQLException | StockServiceException | RuntimeException e) {
+                // rolls back whatever failed, since re-enabling auto-commit below would commit the open batch,
+                // including the symbols it created which the symbol dictionary never learns of
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (DatabaseConnectionException | SQLException e) {
+            throw new StockServiceException(e.getMessage(), e);
+        }
+        return new IngestStatistics(rows, batches, System.nanoTime() - startNanos, commitNanos[COMMIT_TOTAL], commitNanos[COMMIT_MAX]);
+    }
+
+    /**
+     * Sends a batch, commits it, then publishes the symbols it created and the newest quote of each of its symbols
+     * @param connection the connection of the batch, with auto-commit disabled
+     * @param statement the statement holding the batch
+     * @param createdSymbols symbols created by the batch, cleared once registered with the symbol dictionary
+     * @param newestQuotes newest quote of each symbol of the batch, cleared once offered to the latest quote table
+     * @param commitNanos total and slowest commit time of the import, updated with the time this commit took
+     * @throws SQLException
+     */
+    private static void commitBatch(Connection connection, PreparedStatement statement,
+                                    Map<String, Integer> createdSymbols, Map<Integer, StockQuote> newestQuotes,
+                                    long[] commitNanos) throws SQLException {
+        statement.executeBatch();
+        long startNanos = System.nanoTime();
+        connection.commit();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        commitNanos[COMMIT_TOTAL] += elapsedNanos;
+        commitNanos[COMMIT_MAX] = Math.max(commitNanos[COMMIT_MAX], elapsedNanos);
+        for (Map.Entry<String, Integer> entry : createdSymbols.entrySet()) {
+            SymbolDictionary.INSTANCE.register(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Integer, StockQuote> entry : newestQuotes.entrySet()) {
+            LatestQuoteTable.INSTANCE.offer(entry.getKey(), entry.getValue());
+        }
+        createdSymbols.clear();
+        newestQuotes.clear();
+    }
+
+    /**
+     * Gets the id of a symbol, storing the symbol within the current transaction if it is not stored yet
+     * @param connection the connection of the current transaction
+     * @param symbol the symbol for the company issuing the stock
+     * @param createdSymbols symbols created by the current transaction, which the symbol dictionary does not know yet
+     * @return the id of the row storing the symbol
+     * @throws SQLException
+     */
+    private static int resolveOrCreateSymbolId(Connection connection, String symbol, Map<String, Integer> createdSymbols) throws SQLException {
+        Integer createdId = createdSymbols.get(symbol);
+        if (createdId != null) {
+            return createdId;
+        }
+        int symbolId = SymbolDictionary.INSTANCE.resolve(connection, symbol);
+        if (symbolId == SymbolDictionary.NO_ID) {
+            symbolId = IdAllocator.INSTANCE.next(SYMBOLS_TABLE);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SYMBOL)) {
+                statement.setInt(1, symbolId);
+                statement.setString(2, symbol);
+                statement.executeUpdate();
+            }
+            createdSymbols.put(symbol, symbolId);
+        }
+        return symbolId;
+    }
+
+    /**
+     * Finds the stored quote of a symbol at a time
+     * @param session an open session
+     * @param symbolId the id of the symbol
+     * @param time the time of the quote
+     * @return the id of the stored quote, or 0, the id of an unsaved quote, if none is stored
+     */
+    private static int findQuoteId(Session session, final int symbolId, final Timestamp time) {
+        return session.doReturningWork(new ReturningWork<Integer>() {
+            @Override
+            public Integer execute(Connection connection) throws SQLException {
+                try (PreparedStatement statement = connection.prepareStatement(SELECT_QUOTE_ID)) {
+                    statement.setInt(1, symbolId);
+                    statement.setTimestamp(2, time);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        return resultSet.next() ? resultSet.getInt(1) : 0;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Assigns a symbol the id of its stored row, resolved through the symbol dictionary,
+     * or saves it within the given session if it has not been stored yet.
+     * The caller registers a newly saved symbol with the dictionary once its transaction commits.
+     * @param session an open session with an active transaction
+     * @param stockSymbol the symbol to resolve or save
+     * @return true if the symbol was saved as a new row
+     */
+    static boolean saveSymbolIfAbsent(Session session, final DatabaseStockSymbol stockSymbol) {
+        int symbolId = session.doReturningWork(new ReturningWork<Integer>() {
+            @Override
+            public Integer execute(Connection connection) throws SQLException {
+                return SymbolDictionary.INSTANCE.resolve(connection, stockSymbol.getSymbol());
+            }
+        });
+        if (symbolId != SymbolDictionary.NO_ID) {
+            stockSymbol.setId(symbolId);
+            return false;
+        }
+        session.save(stockSymbol);
+        return true;
+    }
+}
@@ -4,7 +4,9 @@ import com.github.rjbx.demo.stocks.model.DatabasePerson;
 
 import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
 import com.github.rjbx.demo.stocks.utility.PersonServiceException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface requires that implementing classes define methods for retrieving and altering a list of people.
@@ -19,6 +21,25 @@ public interface PersonService {
      */
     List<DatabasePerson> getPersons() throws PersonServiceException;
 
+    /**
+     * Get one page of people ordered by id, so that the people can be walked without holding them all in memory.
+     * The first page is requested with an id of 0, and each following page with the id of the last person of the page before it.
+     * @param afterId the id after which the page starts
+     * @param limit the greatest number of people in the page
+     * @return a list of at most {@code limit} Person instances, which is shorter only on the last page
+     * @throws PersonServiceException if a service cannot perform the requested operation
+     */
+    List<DatabasePerson> getPersons(int afterId, int limit) throws PersonServiceException;
+
+    /**
+     * Get one page of the ids and names of people ordered by id, walked like {@link #getPersons(int, int)}
+     * @param afterId the id after which the page starts
+     * @param limit the greatest number of people in the page
+     * @return a list of at most {@code limit} Person instances holding only their ids and names
+     * @throws PersonServiceException if a service cannot perform the requested operation
+     */
+    List<DatabasePerson> getPersonNames(int afterId, int limit) throws PersonServiceException;
+
     /**
      * Add a new person or update the data of an existing person
      * @param person a person object to either update or create
@@ -33,6 +54,14 @@ public interface PersonService {
      */
     List<DatabaseStockSymbol> getStockSymbols(DatabasePerson person) throws PersonServiceException;
 
+    /**
+     * Get the stocks each of the given people is interested in with as few round trips as the source allows
+     * @param persons the people whose stocks to get
+     * @return a {@code Map} from the id of each person to the list of stock symbols of that person, in the order of the persons
+     * @throws PersonServiceException if a service cannot perform the requested operation
+     */
+    Map<Integer, List<DatabaseStockSymbol>> getStockSymbols(Collection<DatabasePerson> persons) throws PersonServiceException;
+
     /**
      * Assign a hobby to a person
      * @param symbol  The stockSymbol to assign
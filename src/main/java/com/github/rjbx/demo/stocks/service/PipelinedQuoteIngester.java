@@ -0,0 +1,319 @@
+package com.github.rjbx.demo.stocks.service;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.utility.DatabaseConnectionException;
+import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.IngestStatistics;
+import com.github.rjbx.demo.stocks.utility.PipelineStatistics;
+import com.github.rjbx.demo.stocks.utility.StockServiceException;
+import com.github.rjbx.demo.stocks.utility.XMLUnmarshalException;
+import com.github.rjbx.demo.stocks.utility.XMLUtils;
+import org.apache.http.annotation.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports a stock feed in a pipeline, so that parsing and writing overlap and several batches are in flight at once.
+ * The calling thread parses the feed and groups the quotes into batches, one batch being filled per writer;
+ * each writer holds one connection for the whole import and stores its batches through
+ * {@link DatabaseStockService#addQuotes(StockQuoteCursor, int)}, committing once per batch.
+ * Quotes are routed to writers by symbol, so two writers never create the same symbol or update the same quote,
+ * and the quotes of a symbol are stored in feed order. Each writer has a bounded queue; when a queue is full
+ * the parser waits, so that memory stays bounded when the database falls behind.
+ * The connection pool must hold at least as many connections as there are writers; blocks of ids are reserved
+ * on a pool of their own, so a writer never needs a second connection of the main pool.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class PipelinedQuoteIngester {
+    // fields of this class
+    private static final long POLL_MILLIS = 100;
+    private static final AtomicInteger importCount = new AtomicInteger();
+    private final DatabaseStockService service;
+    private final int writers;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    /**
+     * Constructs a new {@code PipelinedQuoteIngester} instance
+     * @param service the service storing the batches
+     * @param writers the number of batches written at once, each on a connection of its own
+     * @param batchSize the number of quotes sent and committed together
+     * @param queueCapacity the number of full batches waiting for each writer before the parser waits
+     * @throws IllegalArgumentException if a size is not positive, or if the pool cannot lend every writer a connection
+     * @throws StockServiceException if the size of the connection pool cannot be read
+     */
+    public PipelinedQuoteIngester(DatabaseStockService service, int writers, int batchSize, int queueCapacity) throws StockServiceException {
+        if (service == null || writers < 1 || batchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("A service and positive writer, batch and queue sizes are required");
+        }
+        int maximumPoolSize;
+        try {
+            maximumPoolSize = DatabaseUtils.getMaximumPoolSize();
+        } catch (DatabaseConnectionException e) {
+            throw new StockServiceException("Could not read the size of the connection pool. " + e.getMessage(), e);
+        }
+        if (writers > maximumPoolSize) {
+            throw new IllegalArgumentException("The connection pool of " + maximumPoolSize + " connections cannot serve "
+                    + writers + " writers; at most " + maximumPoolSize + " writers are supported");
+        }
+        this.service = service;
+        this.writers = writers;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Imports a feed file
+     * @param xmlPath String containing a reference to the file containing the XML data to be stored
+     * @return the throughput of each stage of the import
+     * @throws XMLUnmarshalException if the file cannot be read or is malformed; the batches committed before remain stored
+     * @throws StockServiceException if a batch cannot be stored; the batches committed before it remain stored
+     */
+    public final PipelineStatistics ingest(String xmlPath) throws XMLUnmarshalException, StockServiceException {
+        try {
+            return ingest(StockQuoteCursors.fromXML(XMLUtils.openReader(xmlPath)));
+        } catch (StockServiceException e) {
+            // a feed that fails to parse midway is reported as such rather than as a storage failure
+            if (e.getCause() instanceof XMLUnmarshalException) {
+                throw (XMLUnmarshalException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Imports the quotes of a cursor, which is read on the calling thread
+     * @param quotes the cursor to read to its end and close
+     * @return the throughput of each stage of the import
+     * @throws StockServiceException if the cursor cannot be read or a batch cannot be stored;
+     * the batches committed before remain stored
+     */
+    public final PipelineStatistics ingest(StockQuoteCursor quotes) throws StockServiceException {
+        long startNanos = System.nanoTime();
+        final Pipeline pipeline = new Pipeline();
+        ExecutorService executor = Executors.newFixedThreadPool(writers, new WriterThreadFactory(importCount.incrementAndGet()));
+        List<Future<IngestStatistics>> results = new ArrayList<Future<IngestStatistics>>(writers);
+        try {
+            for (int i = 0; i < writers; i++) {
+                final QueueCursor cursor = new QueueCursor(pipeline, pipeline.queues.get(i));
+                results.add(executor.submit(new Callable<IngestStatistics>() {
+                    @Override
+                    public IngestStatistics call() throws StockServiceException {
+                        try {
+                            return service.addQuotes(cursor, batchSize);
+                        } catch (StockServiceException e) {
+                            pipeline.fail(e);
+                            throw e;
+                        } catch (RuntimeException e) {
+                            pipeline.fail(new StockServiceException(e.getMessage(), e));
+                            throw e;
+                        }
+                    }
+                }));
+            }
+            try (StockQuoteCursor source = quotes) {
+                pipeline.parse(source);
+            } catch (StockServiceException e) {
+                pipeline.fail(e);
+            }
+            long parseNanos = System.nanoTime() - startNanos - pipeline.stallNanos;
+            List<IngestStatistics> written = new ArrayList<IngestStatistics>(writers);
+            for (Future<IngestStatistics> result : results) {
+                try {
+                    written.add(result.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StockServiceException("Interrupted while waiting for the writers", e);
+                } catch (ExecutionException e) {
+                    // the failure of the stage which failed first is reported below
+                }
+            }
+            if (pipeline.failure != null) {
+                throw pipeline.failure;
+            }
+            return new PipelineStatistics(pipeline.parsedRows, parseNanos, pipeline.stallNanos, writers, queueCapacity,
+                    pipeline.maxQueueDepth, pipeline.depthSamples == 0 ? 0 : (double) pipeline.depthSum / pipeline.depthSamples,
+                    IngestStatistics.combine(written, System.nanoTime() - startNanos));
+        } finally {
+            // stops any writer still waiting for quotes if the import did not run to its end
+            pipeline.aborted = true;
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The queues between the parser and the writers, and what the parser measured of them
+     */
+    private final class Pipeline {
+        private final List<BlockingQueue<List<StockQuote>>> queues = new ArrayList<BlockingQueue<List<StockQuote>>>(writers);
+        private final List<List<StockQuote>> pending = new ArrayList<List<StockQuote>>(writers);
+        private volatile boolean aborted;
+        private volatile StockServiceException failure;
+        private long parsedRows;
+        private long stallNanos;
+        private int maxQueueDepth;
+        private long depthSum;
+        private long depthSamples;
+
+        private Pipeline() {
+            for (int i = 0; i < writers; i++) {
+                queues.add(new ArrayBlockingQueue<List<StockQuote>>(queueCapacity));
+                pending.add(new ArrayList<StockQuote>(batchSize));
+            }
+        }
+
+        /**
+         * Aborts the import, keeping the failure of the stage which failed first;
+         * the other stages fail because of the abort, which tells nothing about its cause
+         * @param e the failure of a stage
+         */
+        private synchronized void fail(StockServiceException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            aborted = true;
+        }
+
+        /**
+         * Routes every quote of the cursor to the writer of its symbol, then tells every writer that the feed has ended
+         * @param source the cursor to read
+         * @throws StockServiceException if the cursor cannot be read or a writer failed
+         */
+        private void parse(StockQuoteCursor source) throws StockServiceException {
+            while (source.next()) {
+                StockQuote quote = source.get();
+                int writer = (quote.getSymbol().hashCode() & Integer.MAX_VALUE) % writers;
+                List<StockQuote> batch = pending.get(writer);
+                batch.add(quote);
+                parsedRows++;
+                if (batch.size() == batchSize) {
+                    put(writer, batch);
+                    pending.set(writer, new ArrayList<StockQuote>(batchSize));
+                }
+            }
+            for (int writer = 0; writer < writers; writer++) {
+                if (!pending.get(writer).isEmpty()) {
+                    put(writer, pending.get(writer));
+                }
+                put(writer, QueueCursor.END);
+            }
+        }
+
+        /**
+         * Hands a batch to a writer, waiting while its queue is full
+         * @param writer the index of the writer
+         * @param batch the batch to hand over
+         * @throws StockServiceException if a writer failed or the parser was interrupted while waiting
+         */
+        private void put(int writer, List<StockQuote> batch) throws StockServiceException {
+            BlockingQueue<List<StockQuote>> queue = queues.get(writer);
+            int depth = queue.size();
+            maxQueueDepth = Math.max(maxQueueDepth, depth);
+            depthSum += depth;
+            depthSamples++;
+            if (queue.offer(batch)) {
+                return;
+            }
+            long startNanos = System.nanoTime();
+            try {
+                while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (aborted) {
+                        throw new StockServiceException("Import was aborted because a writer failed");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StockServiceException("Interrupted while waiting for a writer", e);
+            } finally {
+                stallNanos += System.nanoTime() - startNanos;
+            }
+        }
+    }
+
+    /**
+     * The quotes of the batches handed to one writer, presented as a cursor; an aborted import ends the cursor
+     * with an exception so that the batch the writer is filling is rolled back
+     */
+    private static final class QueueCursor implements StockQuoteCursor {
+        private static final List<StockQuote> END = new ArrayList<StockQuote>(0);
+        private final Pipeline pipeline;
+        private final BlockingQueue<List<StockQuote>> queue;
+        private List<StockQuote> batch = new ArrayList<StockQuote>(0);
+        private int position;
+        private StockQuote current;
+
+        private QueueCursor(Pipeline pipeline, BlockingQueue<List<StockQuote>> queue) {
+            this.pipeline = pipeline;
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean next() throws StockServiceException {
+            current = null;
+            while (position == batch.size()) {
+                if (batch == END) {
+                    return false;
+                }
+                try {
+                    List<StockQuote> next = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (pipeline.aborted) {
+                        throw new StockServiceException("Import was aborted");
+                    }
+                    if (next != null) {
+                        batch = next;
+                        position = 0;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StockServiceException("Interrupted while waiting for quotes", e);
+                }
+            }
+            current = batch.get(position++);
+            return true;
+        }
+
+        @Override
+        public StockQuote get() {
+            if (current == null) {
+                throw new IllegalStateException("Cursor is not positioned on a quote");
+            }
+            return current;
+        }
+
+        @Override
+        public void close() {
+            current = null;
+        }
+    }
+
+    /**
+     * Names the writer threads of an import and keeps them from holding the JVM open
+     */
+    private static final class WriterThreadFactory implements ThreadFactory {
+        private final int importNumber;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private WriterThreadFactory(int importNumber) {
+            this.importNumber = importNumber;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "stocks-ingest-" + importNumber + "-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.github.rjbx.demo.stocks.service;
+
+import com.github.rjbx.demo.stocks.model.DatabasePerson;
+import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
+import com.github.rjbx.demo.stocks.model.PortfolioValuation;
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.utility.HolderIndex;
+import com.github.rjbx.demo.stocks.utility.LatencyRecorder;
+import com.github.rjbx.demo.stocks.utility.PersonServiceException;
+import com.github.rjbx.demo.stocks.utility.PortfolioValuationException;
+import com.github.rjbx.demo.stocks.utility.StockServiceException;
+import com.github.rjbx.demo.stocks.utility.SymbolDictionary;
+import org.apache.http.annotation.ThreadSafe;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This class keeps the market value of the stocks held by every person current.
+ * {@link #load()} values every portfolio, reading the people a page at a time and valuing the pages in parallel;
+ * after that, {@link #onQuote(StockQuote)} revalues only the portfolios holding the symbol of a new quote,
+ * which are found through the {@code HolderIndex}. A position is valued at the price of one share,
+ * since the "person_stocks" table records which stocks a person holds but not how many.
+ * Each price is held together with the last time it was known to be the latest, i.e. when it was read from the
+ * stock service or arrived as a quote, and a valuation is as old as the oldest price it uses.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class PortfolioValuationEngine {
+    // fields of this class
+    private static final int PAGE_SIZE = 500;
+    private final PersonService personService;
+    private final StockService stockService;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, Price> prices = new ConcurrentHashMap<String, Price>();
+    private final ConcurrentMap<Integer, Portfolio> portfolios = new ConcurrentHashMap<Integer, Portfolio>();
+    private final LatencyRecorder loadTime = new LatencyRecorder("portfolio load");
+    private final LatencyRecorder recomputeTime = new LatencyRecorder("portfolio recompute");
+
+    /**
+     * Constructs a new {@code PortfolioValuationEngine} instance
+     * @param personService the service to read people and the stocks they hold from
+     * @param stockService the service to read prices from
+     * @param executor the executor valuing pages of portfolios in parallel; its lifecycle belongs to the caller
+     */
+    public PortfolioValuationEngine(PersonService personService, StockService stockService, ExecutorService executor) {
+        this.personService = personService;
+        this.stockService = stockService;
+        this.executor = executor;
+    }
+
+    /**
+     * Values the portfolio of every person at prices read again from the stock service, replacing any valuations computed before
+     * @return the number of portfolios valued
+     * @throws PortfolioValuationException if the people, their stocks or the prices cannot be read
+     */
+    public final int load() throws PortfolioValuationException {
+        long startNanos = System.nanoTime();
+        List<Future<Integer>> pages = new ArrayList<Future<Integer>>();
+        try {
+            int afterId = 0;
+            List<DatabasePerson> page;
+            while (!(page = personService.getPersonNames(afterId, PAGE_SIZE)).isEmpty()) {
+                final List<Integer> personIds = new ArrayList<Integer>(page.size());
+                for (DatabasePerson person : page) {
+                    personIds.add(person.getId());
+                }
+                afterId = personIds.get(personIds.size() - 1);
+                pages.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws PortfolioValuationException {
+                        refresh(personIds, true);
+                        return personIds.size();
+                    }
+                }));
+            }
+        } catch (PersonServiceException e) {
+            cancel(pages);
+            throw new PortfolioValuationException("Could not read people. " + e.getMessage(), e);
+        }
+        int valued = 0;
+        try {
+            for (Future<Integer> page : pages) {
+                valued += page.get();
+            }
+        } catch (InterruptedException e) {
+            cancel(pages);
+            Thread.currentThread().interrupt();
+            throw new PortfolioValuationException("Interrupted while valuing portfolios", e);
+        } catch (ExecutionException e) {
+            cancel(pages);
+            throw new PortfolioValuationException("Could not value portfolios. " + e.getCause().getMessage(), e.getCause());
+        }
+        loadTime.recordSince(startNanos);
+        return valued;
+    }
+
+    /**
+     * Applies a new price, revaluing only the portfolios holding its symbol.
+     * A quote older than the price already applied for its symbol is ignored.
+     * @param quote the new price of a symbol
+     * @return the number of portfolios revalued
+     * @throws PortfolioValuationException if the stocks of a holder not valued yet cannot be read
+     */
+    public final int onQuote(StockQuote quote) throws PortfolioValuationException {
+        if (!offerPrice(quote, System.currentTimeMillis(), false)) {
+            return 0;
+        }
+        int symbolId = SymbolDictionary.INSTANCE.lookup(quote.getSymbol());
+        if (symbolId == SymbolDictionary.NO_ID) {
+            return 0;
+        }
+        int revalued = 0;
+        List<Integer> unknownHolders = new ArrayList<Integer>();
+        for (int personId : HolderIndex.INSTANCE.getHolders(symbolId)) {
+            Portfolio portfolio = portfolios.get(personId);
+            // a holder whose stocks were read before it acquired the symbol is read again
+            if (portfolio == null || !portfolio.holds(quote.getSymbol())) {
+                unknownHolders.add(personId);
+            } else {
+                revalue(portfolio);
+                revalued++;
+            }
+        }
+        if (!unknownHolders.isEmpty()) {
+            refresh(unknownHolders, false);
+            revalued += unknownHolders.size();
+        }
+        return revalued;
+    }
+
+    /**
+     * Gets the latest valuation of a person without reading from the services
+     * @param personId the id of the person
+     * @return the latest {@code PortfolioValuation}, or null if the portfolio has not been valued
+     */
+    public final PortfolioValuation getValuation(int personId) {
+        Portfolio portfolio = portfolios.get(personId);
+        return portfolio == null ? null : portfolio.valuation;
+    }
+
+    /**
+     * Gets a valuation of a person no older than the given age, rereading the stocks of the person
+     * and the prices of those stocks if the latest valuation is older, e.g. because it uses the price of a symbol
+     * which has not ticked since it was read
+     * @param personId the id of the person
+     * @param maxStalenessMillis the greatest acceptable age of the valuation in milliseconds
+     * @return a {@code PortfolioValuation} computed within the given age
+     * @throws PortfolioValuationException if the stocks of the person or their prices cannot be read
+     */
+    public final PortfolioValuation getValuation(int personId, long maxStalenessMillis) throws PortfolioValuationException {
+        PortfolioValuation valuation = getValuation(personId);
+        if (valuation == null || valuation.isStale(maxStalenessMillis)) {
+            refresh(Collections.singletonList(personId), true);
+            valuation = getValuation(personId);
+        }
+        return valuation;
+    }
+
+    /**
+     * @return a {@code Map} from the id of each person valued to the latest valuation of the person
+     */
+    public final Map<Integer, PortfolioValuation> getValuations() {
+        Map<Integer, PortfolioValuation> valuations = new HashMap<Integer, PortfolioValuation>();
+        for (Map.Entry<Integer, Portfolio> entry : portfolios.entrySet()) {
+            PortfolioValuation valuation = entry.getValue().valuation;
+            if (valuation != null) {
+                valuations.put(entry.getKey(), valuation);
+            }
+        }
+        return valuations;
+    }
+
+    /**
+     * @return the time taken by {@link #load()} to value every portfolio
+     */
+    public final LatencyRecorder getLoadTime() {
+        return loadTime;
+    }
+
+    /**
+     * @return the time taken to revalue one portfolio from the prices in memory
+     */
+    public final LatencyRecorder getRecomputeTime() {
+        return recomputeTime;
+    }
+
+    /**
+     * Reads the stocks of the given people with one query, reads the prices of those stocks, and values their portfolios
+     * @param personIds the ids of the people
+     * @param reprice true to read every price again, false to read only the prices not held in memory
+     * @throws PortfolioValuationException if the stocks or the prices cannot be read
+     */
+    private void refresh(Collection<Integer> personIds, boolean reprice) throws PortfolioValuationException {
+        List<DatabasePerson> persons = new ArrayList<DatabasePerson>(personIds.size());
+        for (int personId : personIds) {
+            DatabasePerson person = new DatabasePerson();
+            person.setId(personId);
+            persons.add(person);
+        }
+        try {
+            Map<Integer, List<DatabaseStockSymbol>> stockSymbols = personService.getStockSymbols(persons);
+            Set<String> unpriced = new LinkedHashSet<String>();
+            for (List<DatabaseStockSymbol> symbols : stockSymbols.values()) {
+                for (DatabaseStockSymbol symbol : symbols) {
+                    if (reprice || !prices.containsKey(symbol.getSymbol())) {
+                        unpriced.add(symbol.getSymbol());
+                    }
+                }
+            }
+            if (!unpriced.isEmpty()) {
+                // the prices read are known to be the latest as of the start of the read, not its end
+                long checkedMillis = System.currentTimeMillis();
+                for (StockQuote quote : stockService.getQuotes(unpriced).values()) {
+                    offerPrice(quote, checkedMillis, true);
+                }
+            }
+            for (Map.Entry<Integer, List<DatabaseStockSymbol>> entry : stockSymbols.entrySet()) {
+                String[] symbols = new String[entry.getValue().size()];
+                for (int i = 0; i < symbols.length; i++) {
+                    symbols[i] = entry.getValue().get(i).getSymbol();
+                }
+                // the portfolio of a person is kept rather than replaced, so that a quote applied while the
+                // stocks were being read revalues the same portfolio as this refresh does
+                Portfolio portfolio = portfolios.get(entry.getKey());
+                if (portfolio == null) {
+                    Portfolio created = new Portfolio(entry.getKey());
+                    portfolio = portfolios.putIfAbsent(entry.getKey(), created);
+                    if (portfolio == null) {
+                        portfolio = created;
+                    }
+                }
+                synchronized (portfolio) {
+                    portfolio.symbols = symbols;
+                }
+                revalue(portfolio);
+            }
+        } catch (PersonServiceException e) {
+            throw new PortfolioValuationException("Could not read stocks of people. " + e.getMessage(), e);
+        } catch (StockServiceException e) {
+            throw new PortfolioValuationException("Could not read prices. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Values a portfolio at the prices in memory, timed by the oldest of them; a portfolio is revalued by one thread
+     * at a time, so that a valuation computed from older prices never replaces one computed from newer prices
+     * @param portfolio the portfolio to value
+     */
+    private void revalue(Portfolio portfolio) {
+        long startNanos = System.nanoTime();
+        synchronized (portfolio) {
+            BigDecimal value = BigDecimal.ZERO;
+            int pricedPositions = 0;
+            long oldestMillis = System.currentTimeMillis();
+            for (String symbol : portfolio.symbols) {
+                Price price = prices.get(symbol);
+                if (price != null) {
+                    value = value.add(price.quote.getPrice());
+                    oldestMillis = Math.min(oldestMillis, price.checkedMillis);
+                    pricedPositions++;
+                }
+            }
+            portfolio.valuation = new PortfolioValuation(portfolio.personId, value, portfolio.symbols.length, pricedPositions, new DateTime(oldestMillis));
+        }
+        recomputeTime.recordSince(startNanos);
+    }
+
+    /**
+     * Replaces the price of a symbol unless the price held in memory is newer.
+     * A price read from the stock service which is older than the price held still shows that the price held
+     * was the latest when the read began, so the price held is kept but counts as known from then on.
+     * @param quote the candidate price
+     * @param checkedMillis when the candidate price was known to be the latest
+     * @param read true if the price was read from the stock service, false if it arrived as a quote
+     * @return true if the price was applied
+     */
+    private boolean offerPrice(StockQuote quote, long checkedMillis, boolean read) {
+        while (true) {
+            Price current = prices.putIfAbsent(quote.getSymbol(), new Price(quote, checkedMillis));
+            if (current == null) {
+                return true;
+            }
+            if (current.quote.getTime().isAfter(quote.getTime())) {
+                if (!read || current.checkedMillis >= checkedMillis
+                        || prices.replace(quote.getSymbol(), current, new Price(current.quote, checkedMillis))) {
+                    return false;
+                }
+            } else if (prices.replace(quote.getSymbol(), current, new Price(quote, Math.max(checkedMillis, current.checkedMillis)))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Cancels the pages still being valued after one of them failed
+     * @param pages the pending pages
+     */
+    private static void cancel(List<Future<Integer>> pages) {
+        for (Future<Integer> page : pages) {
+            page.cancel(true);
+        }
+    }
+
+    /**
+     * The latest price of a symbol together with the last time it was known to be the latest
+     */
+    private static final class Price {
+        private final StockQuote quote;
+        private final long checkedMillis;
+
+        private Price(StockQuote quote, long checkedMillis) {
+            this.quote = quote;
+            this.checkedMillis = checkedMillis;
+        }
+    }
+
+    /**
+     * The stocks one person holds together with their latest valuation; the stocks are replaced
+     * while holding the lock of the portfolio, and the valuation is null until the portfolio is first valued
+     */
+    private static final class Portfolio {
+        private final int personId;
+        private volatile String[] symbols = new String[0];
+        private volatile PortfolioValuation valuation;
+
+        private Portfolio(int personId) {
+            this.personId = personId;
+        }
+
+        private boolean holds(String symbol) {
+            for (String held : symbols) {
+                if (held.equals(symbol)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.rjbx.demo.stocks.service;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.utility.StockServiceException;
+
+/**
+ * This interface requires that implementing classes step through a sequence of stock quotes one at a time,
+ * so that a range of any size can be consumed without holding more than the current quote in memory.
+ * A cursor must be closed, preferably with try-with-resources, to release what it reads from.
+ * @author Bob Basmaji
+ */
+public interface StockQuoteCursor extends AutoCloseable {
+    /**
+     * Moves the cursor to the next quote
+     * @return true if the cursor is positioned on a quote, false if the sequence is exhausted
+     * @throws StockServiceException if the next quote cannot be read
+     */
+    boolean next() throws StockServiceException;
+
+    /**
+     * Gets the quote the cursor is positioned on
+     * @return the current {@code StockQuote}
+     * @throws IllegalStateException if {@link #next()} has not returned true
+     */
+    StockQuote get();
+
+    /**
+     * Releases what the cursor reads from; closing a closed cursor has no effect
+     * @throws StockServiceException if the cursor cannot be closed cleanly
+     */
+    @Override
+    void close() throws StockServiceException;
+}
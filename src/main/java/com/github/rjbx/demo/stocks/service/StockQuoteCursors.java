@@ -0,0 +1,125 @@
+package com.github.rjbx.demo.stocks.service;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.model.XMLStockQuote;
+import com.github.rjbx.demo.stocks.utility.StockServiceException;
+import com.github.rjbx.demo.stocks.utility.XMLStockQuoteReader;
+import com.github.rjbx.demo.stocks.utility.XMLUnmarshalException;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class contains static methods for adapting to and from {@code StockQuoteCursor} instances.
+ * @author Bob Basmaji
+ */
+public final class StockQuoteCursors {
+
+    /**
+     * Hides the constructor because this class contains only static methods
+     */
+    private StockQuoteCursors() {
+    }
+
+    /**
+     * Adapts quotes already held in memory to a cursor
+     * @param quotes the quotes to step through
+     * @return a {@code StockQuoteCursor} over the quotes
+     */
+    public static StockQuoteCursor fromIterable(Iterable<StockQuote> quotes) {
+        final Iterator<StockQuote> iterator = quotes.iterator();
+        return new StockQuoteCursor() {
+            private StockQuote current;
+
+            @Override
+            public boolean next() {
+                current = iterator.hasNext() ? iterator.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public StockQuote get() {
+                if (current == null) {
+                    throw new IllegalStateException("Cursor is not positioned on a quote");
+                }
+                return current;
+            }
+
+            @Override
+            public void close() {
+                current = null;
+            }
+        };
+    }
+
+    /**
+     * Adapts a streaming reader of a stock feed to a cursor, converting each element to a quote as it is reached
+     * @param reader the reader to step through, closed together with the cursor
+     * @return a {@code StockQuoteCursor} over the quotes of the feed
+     */
+    public static StockQuoteCursor fromXML(final XMLStockQuoteReader reader) {
+        return new StockQuoteCursor() {
+            private StockQuote current;
+
+            @Override
+            public boolean next() throws StockServiceException {
+                try {
+                    if (!reader.next()) {
+                        current = null;
+                        return false;
+                    }
+                } catch (XMLUnmarshalException e) {
+                    current = null;
+                    throw new StockServiceException(e.getMessage(), e);
+                }
+                XMLStockQuote quote = reader.get();
+                try {
+                    current = new StockQuote(DateTime.parse(quote.getTime(), StockQuote.getDateFormatter()), new BigDecimal(quote.getPrice()), quote.getSymbol());
+                } catch (IllegalArgumentException e) {
+                    // a time or price which does not parse makes the feed as malformed as a broken element
+                    current = null;
+                    String message = "Could not convert the stock element of " + quote.getSymbol() + ". " + e.getMessage();
+                    throw new StockServiceException(message, new XMLUnmarshalException(message, e));
+                }
+                return true;
+            }
+
+            @Override
+            public StockQuote get() {
+                if (current == null) {
+                    throw new IllegalStateException("Cursor is not positioned on a quote");
+                }
+                return current;
+            }
+
+            @Override
+            public void close() throws StockServiceException {
+                current = null;
+                try {
+                    reader.close();
+                } catch (XMLUnmarshalException e) {
+                    throw new StockServiceException(e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads every remaining quote of a cursor into a list and closes the cursor
+     * @param cursor the cursor to drain
+     * @return a {@code List} of the quotes in the order of the cursor
+     * @throws StockServiceException if the cursor cannot be read
+     */
+    public static List<StockQuote> toList(StockQuoteCursor cursor) throws StockServiceException {
+        List<StockQuote> quotes = new ArrayList<StockQuote>();
+        try (StockQuoteCursor source = cursor) {
+            while (source.next()) {
+                quotes.add(source.get());
+            }
+        }
+        return quotes;
+    }
+}
@@ -1,12 +1,15 @@
 package com.github.rjbx.demo.stocks.service;
 
 import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.model.StockQuoteBar;
 import com.github.rjbx.demo.stocks.utility.Interval;
 import com.github.rjbx.demo.stocks.utility.StockServiceException;
 import org.apache.http.annotation.Immutable;
 
 import org.joda.time.DateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface requires that implementing classes define methods for getting stock quotes.
@@ -23,6 +26,26 @@ public interface StockService {
      */
     StockQuote getQuote(String symbol) throws StockServiceException ;
 
+    /**
+     * Gets today's {@code StockQuote} instance for each of the given symbols in as few round trips as the source allows
+     * @param symbols symbols for the companies issuing the stocks
+     * @return a {@code Map} from each symbol with a quote to its {@code StockQuote}, in the order of the symbols
+     * @throws StockServiceException
+     */
+    Map<String, StockQuote> getQuotes(Collection<String> symbols) throws StockServiceException;
+
+    /**
+     * Gets the {@code StockQuote} instances of each of the given symbols within the given date range
+     * in as few round trips as the source allows
+     * @param symbols symbols for the companies issuing the stocks
+     * @param startRange beginning of the date range
+     * @param endRange   end of the date range
+     * @return a {@code Map} from each symbol with quotes in the range to its {@code List} of {@code StockQuote} instances,
+     * in the order of the symbols
+     * @throws StockServiceException
+     */
+    Map<String, List<StockQuote>> getQuotes(Collection<String> symbols, DateTime startRange, DateTime endRange) throws StockServiceException;
+
     /**
      * Gets the {@code List} of {@code StockQuote} instances for the given symbol and date range
      * @param symbol symbol for the company issuing the stock
@@ -33,6 +56,18 @@ public interface StockService {
      */
     List<StockQuote> getQuote(String symbol, DateTime startRange, DateTime endRange) throws StockServiceException ;
 
+    /**
+     * Opens a cursor over the {@code StockQuote} instances for the given symbol and date range.
+     * Quotes are produced one at a time as the cursor advances, so ranges of any length are read in constant memory.
+     * The caller must close the cursor, preferably with try-with-resources.
+     * @param symbol symbol for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange   end of the date range
+     * @return a {@code StockQuoteCursor} positioned before the first quote of the range
+     * @throws StockServiceException
+     */
+    StockQuoteCursor getQuoteCursor(String symbol, DateTime startRange, DateTime endRange) throws StockServiceException;
+
     /**
      * Gets the {@code List} of {@code StockQuote} instances for the given symbol and date range
      * @param symbol symbol for the company issuing the stock
@@ -43,4 +78,15 @@ public interface StockService {
      * @throws StockServiceException
      */
     List<StockQuote> getQuote(String symbol, DateTime startRange, DateTime endRange, Interval interval) throws StockServiceException;
+
+    /**
+     * Gets the {@code List} of {@code StockQuoteBar} instances summarizing each interval of the given date range
+     * @param symbol symbol for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange   end of the date range
+     * @param interval length of each interval summarized by a bar
+     * @return a {@code List} of {@code StockQuoteBar} instances ordered by time
+     * @throws StockServiceException
+     */
+    List<StockQuoteBar> getQuoteBars(String symbol, DateTime startRange, DateTime endRange, Interval interval) throws StockServiceException;
 }
@@ -1,6 +1,7 @@
 package com.github.rjbx.demo.stocks.service;
 
 import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.model.StockQuoteBar;
 import com.github.rjbx.demo.stocks.utility.*;
 import com.github.rjbx.demo.stocks.utility.Interval;
 import org.apache.http.annotation.Immutable;
@@ -12,7 +13,10 @@ import yahoofinance.histquotes.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class defines methods for getting stock quotes from a web-based API, and implements the {@code StockService} interface.
@@ -56,20 +60,81 @@ public class WebStockService implements StockService {
      * @throws StockServiceException
      */
     public final List<StockQuote> getQuote(String symbol, DateTime startRange, DateTime endRange) throws StockServiceException {
-        List<StockQuote> stockQuotes = new ArrayList<StockQuote>();
+        List<StockQuote> stockQuotes = StockQuoteCursors.toList(getQuoteCursor(symbol, startRange, endRange));
+        if (stockQuotes.isEmpty()) {
+            throw new StockServiceException("No instances of " + symbol + " found in the selected range");
+        }
+        return stockQuotes;
+    }
+
+    /**
+     * Gets today's {@code StockQuote} instance for each of the given symbols with a single request to the web API
+     * @param symbols symbols for the companies issuing the stocks
+     * @return a {@code Map} from each symbol with a quote to its {@code StockQuote}, in the order of the symbols
+     * @throws StockServiceException
+     */
+    public final Map<String, StockQuote> getQuotes(Collection<String> symbols) throws StockServiceException {
+        Map<String, StockQuote> stockQuotes = new LinkedHashMap<String, StockQuote>();
         try {
-            Stock stock = YahooFinance.get(symbol, startRange.toGregorianCalendar(), endRange.toGregorianCalendar());
-            List<HistoricalQuote> quotes = stock.getHistory();
-            stockQuotes = quoteListAdapter(quotes);
-            } catch (IOException e) {
+            Map<String, Stock> stocks = YahooFinance.get(symbols.toArray(new String[symbols.size()]));
+            for (String symbol : symbols) {
+                Stock stock = stocks.get(symbol);
+                if (stock != null && stock.getQuote() != null && stock.getQuote().getPrice() != null) {
+                    stockQuotes.put(symbol, quoteAdapter(stock));
+                }
+            }
+        } catch (IOException e) {
             throw new StockServiceException(e.getMessage(), e);
         }
-        if (stockQuotes.isEmpty()) {
-            throw new StockServiceException("No instances of " + symbol + " found in the selected range");
+        return stockQuotes;
+    }
+
+    /**
+     * Gets the {@code StockQuote} instances of each of the given symbols within the given date range
+     * through the multi-symbol request of the web API
+     * @param symbols symbols for the companies issuing the stocks
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @return a {@code Map} from each symbol with quotes in the range to its {@code List} of {@code StockQuote} instances,
+     * in the order of the symbols
+     * @throws StockServiceException
+     */
+    public final Map<String, List<StockQuote>> getQuotes(Collection<String> symbols, DateTime startRange, DateTime endRange) throws StockServiceException {
+        Map<String, List<StockQuote>> stockQuotes = new LinkedHashMap<String, List<StockQuote>>();
+        try {
+            Map<String, Stock> stocks = YahooFinance.get(symbols.toArray(new String[symbols.size()]),
+                    startRange.toGregorianCalendar(), endRange.toGregorianCalendar());
+            for (String symbol : symbols) {
+                Stock stock = stocks.get(symbol);
+                List<StockQuote> history = stock == null ? new ArrayList<StockQuote>() : quoteListAdapter(stock.getHistory());
+                if (!history.isEmpty()) {
+                    stockQuotes.put(symbol, history);
+                }
+            }
+        } catch (IOException e) {
+            throw new StockServiceException(e.getMessage(), e);
         }
         return stockQuotes;
     }
 
+    /**
+     * Opens a cursor over the {@code StockQuote} instances for the given symbol and date range.
+     * The web API answers with the whole history at once, so the cursor steps through quotes already in memory.
+     * @param symbol abbreviation for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @return a {@code StockQuoteCursor} positioned before the first quote of the range
+     * @throws StockServiceException
+     */
+    public final StockQuoteCursor getQuoteCursor(String symbol, DateTime startRange, DateTime endRange) throws StockServiceException {
+        try {
+            Stock stock = YahooFinance.get(symbol, startRange.toGregorianCalendar(), endRange.toGregorianCalendar());
+            return StockQuoteCursors.fromIterable(quoteListAdapter(stock.getHistory()));
+        } catch (IOException e) {
+            throw new StockServiceException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Gets the {@code List} of {@code StockQuote} instances for the given symbol, date range and interval
      * @param symbol abbreviation for the company issuing the stock
@@ -95,6 +160,36 @@ public class WebStockService implements StockService {
         return stockQuotes;
     }
 
+    /**
+     * Gets the {@code List} of {@code StockQuoteBar} instances summarizing each interval of the given date range,
+     * using the open, high, low and close prices reported by the web API for each of its intervals;
+     * the count of each bar is {@code StockQuoteBar.UNKNOWN_COUNT}
+     * @param symbol abbreviation for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @param interval length of each interval summarized by a bar
+     * @return a {@code List} of {@code StockQuoteBar} instances
+     * @throws StockServiceException
+     */
+    public final List<StockQuoteBar> getQuoteBars(String symbol, DateTime startRange, DateTime endRange, Interval interval) throws StockServiceException {
+        List<StockQuoteBar> stockQuoteBars = new ArrayList<StockQuoteBar>();
+        yahoofinance.histquotes.Interval quoteInterval = intervalAdapter(interval);
+        try {
+            Stock stock = YahooFinance.get(symbol, startRange.toGregorianCalendar(), endRange.toGregorianCalendar(), quoteInterval);
+            for (HistoricalQuote q : stock.getHistory()) {
+                // the web API reports each interval already aggregated, without the number of trades it summarizes
+                stockQuoteBars.add(new StockQuoteBar(new DateTime(q.getDate()), q.getOpen(), q.getHigh(), q.getLow(), q.getClose(),
+                        StockQuoteBar.UNKNOWN_COUNT, q.getSymbol()));
+            }
+        } catch (IOException e) {
+            throw new StockServiceException(e.getMessage(), e);
+        }
+        if (stockQuoteBars.isEmpty()) {
+            throw new StockServiceException("No instances of " + symbol + " found in the selected range");
+        }
+        return stockQuoteBars;
+    }
+
     /**
      * Adapts an instance of the {@code Stock} class from the yahoofinance package to a {@code StockQuote}
      * @param stock object from class defined in yahoofinance package
@@ -0,0 +1,38 @@
+package com.github.rjbx.demo.stocks.servlet;
+
+import com.github.rjbx.demo.stocks.utility.ApplicationBootstrap;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * This class starts the background bootstrap of the shared resources when the web application is deployed,
+ * and publishes it as a context attribute so that the readiness servlet can report its progress.
+ */
+public class BootstrapListener implements ServletContextListener {
+    // fields of this class
+    public static final String BOOTSTRAP_ATTRIBUTE = ApplicationBootstrap.class.getName();
+
+    /**
+     * Starts the bootstrap without waiting for it, so that deployment completes at once
+     * @param event the event of the deployed context
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ApplicationBootstrap bootstrap = new ApplicationBootstrap();
+        event.getServletContext().setAttribute(BOOTSTRAP_ATTRIBUTE, bootstrap);
+        bootstrap.start();
+    }
+
+    /**
+     * Stops a bootstrap still in progress
+     * @param event the event of the destroyed context
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        Object bootstrap = event.getServletContext().getAttribute(BOOTSTRAP_ATTRIBUTE);
+        if (bootstrap instanceof ApplicationBootstrap) {
+            ((ApplicationBootstrap) bootstrap).stop();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.rjbx.demo.stocks.servlet;
+
+import com.github.rjbx.demo.stocks.utility.ApplicationBootstrap;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * This class is a servlet reporting whether the application has finished its bootstrap and can serve requests.
+ * It answers 200 once the bootstrap is ready and 503 while it is starting or after it has failed,
+ * so that a load balancer routes no traffic to the application before it is warm.
+ */
+public class ReadinessServlet extends HttpServlet {
+
+    /**
+     * Reports the state of the bootstrap as plain text
+     * @param request
+     * @param response
+     * @throws IOException
+     */
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Object attribute = getServletContext().getAttribute(BootstrapListener.BOOTSTRAP_ATTRIBUTE);
+        ApplicationBootstrap bootstrap = attribute instanceof ApplicationBootstrap ? (ApplicationBootstrap) attribute : null;
+        response.setContentType("text/plain");
+        if (bootstrap != null && bootstrap.isReady()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().println(ApplicationBootstrap.State.READY + " " + bootstrap.getStartupMillis() + "ms");
+        } else {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            if (bootstrap == null) {
+                response.getWriter().println(ApplicationBootstrap.State.NEW);
+            } else if (bootstrap.getFailure() != null) {
+                // the class of the failure is reported together with its message, which may be null
+                response.getWriter().println(bootstrap.getState() + " " + bootstrap.getFailure());
+            } else {
+                response.getWriter().println(bootstrap.getState());
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.github.rjbx.demo.stocks.model.XMLStockQuoteList;
+import com.github.rjbx.demo.stocks.service.ServiceFactory;
+import org.apache.http.annotation.ThreadSafe;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class prepares the expensive shared resources of the application in the background, so that no request
+ * pays for building them. The connection pool, the Hibernate {@code SessionFactory} and the JAXB runtime are built
+ * in parallel; then warm-up queries load the in-memory symbol and holder indexes and run a first Hibernate query.
+ * The application reports itself ready once every step has succeeded.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class ApplicationBootstrap {
+
+    /**
+     * The stages a bootstrap passes through
+     */
+    public enum State {
+        NEW, STARTING, READY, FAILED
+    }
+
+    // fields of this class
+    private final AtomicReference<State> state = new AtomicReference<State>(State.NEW);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile Throwable failure;
+    private volatile long startupMillis;
+    private volatile Thread thread;
+
+    /**
+     * Starts building the shared resources on a background thread and returns at once
+     * @throws IllegalStateException if this bootstrap has already been started
+     */
+    public final void start() {
+        if (!state.compareAndSet(State.NEW, State.STARTING)) {
+            throw new IllegalStateException("Bootstrap was already started");
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                bootstrap();
+            }
+        }, "stocks-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Interrupts a bootstrap still in progress, e.g. when the application is stopped during startup
+     */
+    public final void stop() {
+        Thread thread = this.thread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Waits for the bootstrap to finish
+     * @param timeout the greatest time to wait
+     * @param unit the unit of the timeout
+     * @return true if the application is ready, false if the bootstrap failed or did not finish in time
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public final boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        finished.await(timeout, unit);
+        return isReady();
+    }
+
+    /**
+     * @return true once every shared resource has been built and warmed up
+     */
+    public final boolean isReady() {
+        return state.get() == State.READY;
+    }
+
+    /**
+     * @return the current stage of the bootstrap
+     */
+    public final State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return the cause of a failed bootstrap, or null if it has not failed
+     */
+    public final Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return the time the bootstrap took to become ready in milliseconds, or 0 if it is not ready
+     */
+    public final long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * Builds the shared resources in parallel, then warms them up, recording the outcome
+     */
+    private void bootstrap() {
+        long startNanos = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Object>> builds = new ArrayList<Future<Object>>();
+            builds.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws DatabaseConnectionException {
+                    return DatabaseUtils.getDataSource();
+                }
+            }));
+            builds.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return DatabaseUtils.getSessionFactory();
+                }
+            }));
+            builds.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    // loads the JAXB runtime and builds the shared context of the feed classes
+                    return XMLUtils.getContext(XMLStockQuoteList.class);
+                }
+            }));
+            for (Future<Object> build : builds) {
+                build.get();
+            }
+            warmUp();
+            startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            state.set(State.READY);
+        } catch (ExecutionException e) {
+            fail(e.getCause());
+        } catch (InterruptedException e) {
+            fail(e);
+        } catch (Throwable e) {
+            // an error such as a missing class must fail the bootstrap too, or it would stay starting forever
+            fail(e);
+        } finally {
+            executor.shutdownNow();
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Loads the in-memory indexes unless the database initialization loaded them already,
+     * and runs a first Hibernate query so that its query plan and the entity metadata are ready
+     * @throws Exception if a warm-up query fails
+     */
+    private static void warmUp() throws Exception {
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            if (!SymbolDictionary.INSTANCE.isLoaded()) {
+                SymbolDictionary.INSTANCE.load(connection);
+            }
+            if (!HolderIndex.INSTANCE.isLoaded()) {
+                HolderIndex.INSTANCE.load(connection);
+            }
+        }
+        ServiceFactory.createPersonService().getPersons(0, 1);
+    }
+
+    /**
+     * Records the cause of a failed bootstrap
+     * @param cause the exception which stopped the bootstrap
+     */
+    private void fail(Throwable cause) {
+        failure = cause;
+        state.set(State.FAILED);
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.rjbx.demo.stocks.utility;
+
+/**
+ * Enum representing the databases the database services can run against, and the configuration files of each.
+ * The profile is chosen once per process with the "stocks.database.profile" system property, e.g.
+ * {@code -Dstocks.database.profile=embedded}; MySQL is used when the property is not set.
+ * @author Bob Basmaji
+ */
+public enum DatabaseProfile {
+    /**
+     * A MySQL server reached over the network
+     */
+    MYSQL("hibernate.cfg.xml", "database_connection.properties", "src/main/resources/sql/stocks_db_initialization"),
+
+    /**
+     * An H2 database running in MySQL compatibility mode inside this process, with no network hop
+     */
+    EMBEDDED("hibernate-embedded.cfg.xml", "database_connection_embedded.properties", "src/main/resources/sql/stocks_db_initialization_embedded");
+
+    // fields of this enum
+    public static final String PROFILE_PROPERTY = "stocks.database.profile";
+    private final String hibernateConfigurationFile;
+    private final String poolPropertiesFile;
+    private final String initializationFile;
+
+    /**
+     * @param hibernateConfigurationFile class path resource holding the connection URL, credentials and mappings
+     * @param poolPropertiesFile class path resource holding the pool and driver settings
+     * @param initializationFile path to the script creating the schema
+     */
+    DatabaseProfile(String hibernateConfigurationFile, String poolPropertiesFile, String initializationFile) {
+        this.hibernateConfigurationFile = hibernateConfigurationFile;
+        this.poolPropertiesFile = poolPropertiesFile;
+        this.initializationFile = initializationFile;
+    }
+
+    /**
+     * @return the profile named by the "stocks.database.profile" system property, or {@code MYSQL} if it is not set
+     * @throws IllegalArgumentException if the property names no profile
+     */
+    public static DatabaseProfile active() {
+        return valueOf(System.getProperty(PROFILE_PROPERTY, MYSQL.name()).trim().toUpperCase());
+    }
+
+    /**
+     * @return the class path resource holding the connection URL, credentials and mappings
+     */
+    public final String getHibernateConfigurationFile() {
+        return hibernateConfigurationFile;
+    }
+
+    /**
+     * @return the class path resource holding the pool and driver settings
+     */
+    public final String getPoolPropertiesFile() {
+        return poolPropertiesFile;
+    }
+
+    /**
+     * @return the path to the script creating the schema
+     */
+    public final String getInitializationFile() {
+        return initializationFile;
+    }
+}
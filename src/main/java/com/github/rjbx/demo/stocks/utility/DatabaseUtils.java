@@ -1,24 +1,27 @@
 package com.github.rjbx.demo.stocks.utility;
 
-import com.github.rjbx.demo.stocks.model.*;
-import com.github.rjbx.demo.stocks.service.DatabasePersonService;
 import com.github.rjbx.demo.stocks.service.DatabaseStockService;
 import com.github.rjbx.demo.stocks.service.ServiceFactory;
+import com.github.rjbx.demo.stocks.service.StockQuoteCursors;
 import com.github.rjbx.demo.stocks.service.ServiceType;
 import com.ibatis.common.jdbc.ScriptRunner;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.apache.http.annotation.Immutable;
+import org.hibernate.Cache;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
 import org.hibernate.service.ServiceRegistryBuilder;
-import org.joda.time.DateTime;
+import org.hibernate.stat.Statistics;
 
+import javax.sql.DataSource;
 import java.io.*;
-import java.math.BigDecimal;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 
 /**
  * A class that contains database-related utility methods.
@@ -27,30 +30,81 @@ import java.util.List;
 @Immutable
 public final class  DatabaseUtils {
     // fields of this class
-    public static final String initializationFile = "src/main/resources/sql/stocks_db_initialization";
-    private static SessionFactory sessionFactory;
+    public static final DatabaseProfile profile = DatabaseProfile.active();
+    public static final String initializationFile = profile.getInitializationFile();
+    public static final String poolPropertiesFile = profile.getPoolPropertiesFile();
+    private static final String DRIVER_PROPERTY_PREFIX = "driver.";
+    private static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_ID_ALLOCATION_SIZE = 100;
+    private static final int DEFAULT_ID_POOL_SIZE = 2;
+    private static final long DEFAULT_MAX_LAG_MILLIS = 5000;
+    private static final long DEFAULT_PROBE_INTERVAL_MILLIS = 1000;
+    private static final PoolMetrics poolMetrics = new PoolMetrics();
+    private static final Object sessionFactoryLock = new Object();
+    private static volatile SessionFactory sessionFactory;
+    private static final Object dataSourceLock = new Object();
+    private static final Object poolPropertiesLock = new Object();
+    private static final Object replicaRouterLock = new Object();
+    private static final Object idDataSourceLock = new Object();
     private static Configuration configuration;
+    private static volatile HikariDataSource dataSource;
+    private static volatile HikariDataSource idDataSource;
+    private static volatile ReplicaRouter replicaRouter;
+    private static volatile Properties poolProperties;
 
     /**
+     * Gets the session factory, building it on first use unless {@code ApplicationBootstrap} has built it already.
+     * Once built, the factory is read without taking a lock.
      * @return SessionFactory for use with database transactions
      */
     public static SessionFactory getSessionFactory() {
-        // singleton pattern
-        synchronized (DatabasePersonService.class) {
-            if (sessionFactory == null) {
-                // applies configuration to service registry which instantiates session factory
-                Configuration configuration = getConfiguration();
-                ServiceRegistry serviceRegistry = new ServiceRegistryBuilder()
-                        .applySettings(configuration.getProperties())
-                        .buildServiceRegistry();
-                sessionFactory = configuration.buildSessionFactory(serviceRegistry);
+        // singleton pattern with double-checked locking on the volatile field
+        SessionFactory factory = sessionFactory;
+        if (factory == null) {
+            synchronized (sessionFactoryLock) {
+                factory = sessionFactory;
+                if (factory == null) {
+                    // applies configuration to service registry which instantiates session factory
+                    Configuration configuration = getConfiguration();
+                    ServiceRegistry serviceRegistry = new ServiceRegistryBuilder()
+                            .applySettings(configuration.getProperties())
+                            .buildServiceRegistry();
+                    factory = configuration.buildSessionFactory(serviceRegistry);
+                    sessionFactory = factory;
+                }
             }
         }
-        return sessionFactory;
+        return factory;
     }
 
     /**
-     * Create a new or return an existing database configuration object
+     * Gets the statistics Hibernate gathers while "hibernate.generate_statistics" is enabled,
+     * including the hit, miss and put counts of every second-level and query cache region
+     * @return the {@code Statistics} of the session factory
+     */
+    public static Statistics getStatistics() {
+        return getSessionFactory().getStatistics();
+    }
+
+    /**
+     * Discards every entry of the second-level and query caches if the session factory has been built,
+     * e.g. after the tables have been rewritten by a script that Hibernate does not see
+     */
+    private static void evictCaches() {
+        SessionFactory factory = sessionFactory;
+        if (factory != null) {
+            Cache cache = factory.getCache();
+            cache.evictEntityRegions();
+            cache.evictCollectionRegions();
+            cache.evictDefaultQueryRegion();
+            cache.evictQueryRegions();
+        }
+    }
+
+    /**
+     * Create a new or return an existing database configuration object, read from the hibernate xml file of the profile
      * @return a Hibernate Configuration instance
      */
     private static Configuration getConfiguration() {
@@ -58,53 +112,292 @@ public final class  DatabaseUtils {
         synchronized (DatabaseUtils.class) {
             if (configuration == null) {
                 configuration = new Configuration();
-                configuration.configure("hibernate.cfg.xml");
+                configuration.configure(profile.getHibernateConfigurationFile());
             }
         }
         return configuration;
     }
 
     /**
-     * Gets a reference to the same database connection
+     * Create a new or return the existing pool of database connections.
+     * The database URL and credentials come from the hibernate xml file of the profile; the pool bounds, idle eviction,
+     * validation and leak detection settings come from the pool properties file of the profile.
+     * Once built, the pool is read without taking a lock, since every borrowed connection reads it.
+     * @return a pooled {@code DataSource}
+     * @throws DatabaseConnectionException if the pool settings cannot be read
+     */
+    public static DataSource getDataSource() throws DatabaseConnectionException {
+        // singleton pattern with double-checked locking on the volatile field
+        HikariDataSource pool = dataSource;
+        if (pool == null) {
+            synchronized (dataSourceLock) {
+                pool = dataSource;
+                if (pool == null) {
+                    pool = createPool("stocks", getConfiguration().getProperty("connection.url"), getMaximumPoolSize(), true);
+                    dataSource = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Create a new or return the existing router between the pool of the primary database and the pools of its
+     * read replicas. Replicas are listed by URL in the "replica.urls" pool property and reached with the credentials
+     * and pool settings of the primary; without replicas every read goes to the primary.
+     * Once built, the router is read without taking a lock.
+     * @return the {@code ReplicaRouter} of the profile
+     * @throws DatabaseConnectionException if the pool settings cannot be read or a pool cannot be built
+     */
+    public static ReplicaRouter getReplicaRouter() throws DatabaseConnectionException {
+        // singleton pattern with double-checked locking on the volatile field
+        ReplicaRouter router = replicaRouter;
+        if (router == null) {
+            synchronized (replicaRouterLock) {
+                router = replicaRouter;
+                if (router == null) {
+                    Properties poolProperties = getPoolProperties();
+                    List<DataSource> replicas = new ArrayList<DataSource>();
+                    for (String url : poolProperties.getProperty("replica.urls", "").split(",")) {
+                        if (!url.trim().isEmpty()) {
+                            replicas.add(createPool("stocks-replica-" + (replicas.size() + 1), url.trim(), getMaximumPoolSize(), false));
+                        }
+                    }
+                    router = new ReplicaRouter(getDataSource(), replicas,
+                            ReplicaRouter.Selection.valueOf(poolProperties.getProperty("replica.selection", "ROUND_ROBIN")),
+                            Long.parseLong(poolProperties.getProperty("replica.maxLagMillis", String.valueOf(DEFAULT_MAX_LAG_MILLIS))),
+                            Long.parseLong(poolProperties.getProperty("replica.probeIntervalMillis", String.valueOf(DEFAULT_PROBE_INTERVAL_MILLIS))));
+                    replicaRouter = router;
+                }
+            }
+        }
+        return router;
+    }
+
+    /**
+     * Create a new or return the existing pool from which {@code IdAllocator} reserves blocks of ids.
+     * A reservation happens while the caller holds a connection of the main pool and the lock of the block it refills,
+     * so it must not borrow from the main pool too: with as many writers as the main pool has connections,
+     * every writer would wait for a connection none of them returns. The pool is small, since a reservation
+     * takes one short transaction per block.
+     * @return a pooled {@code DataSource} to the primary database, separate from {@link #getDataSource()}
+     * @throws DatabaseConnectionException if the pool settings cannot be read or the pool cannot be built
+     */
+    public static DataSource getIdDataSource() throws DatabaseConnectionException {
+        // singleton pattern with double-checked locking on the volatile field
+        HikariDataSource pool = idDataSource;
+        if (pool == null) {
+            synchronized (idDataSourceLock) {
+                pool = idDataSource;
+                if (pool == null) {
+                    pool = createPool("stocks-ids", getConfiguration().getProperty("connection.url"),
+                            Integer.parseInt(getPoolProperties().getProperty("ids.poolSize", String.valueOf(DEFAULT_ID_POOL_SIZE))), false);
+                    idDataSource = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Builds a pool of connections to the given URL with the credentials of the hibernate xml file
+     * and the settings of the pool properties file of the profile
+     * @param poolName the name of the pool shown in its log and metrics
+     * @param url the JDBC URL of the database
+     * @param maximumPoolSize the greatest number of connections the pool opens
+     * @param trackMetrics true to report wait times and occupancy to {@link #getPoolMetrics()}
+     * @return a pooled {@code DataSource}
+     * @throws DatabaseConnectionException if the pool settings cannot be read or the pool cannot be built
+     */
+    private static HikariDataSource createPool(String poolName, String url, int maximumPoolSize, boolean trackMetrics) throws DatabaseConnectionException {
+        Configuration configuration = getConfiguration();
+        Properties poolProperties = getPoolProperties();
+        HikariConfig poolConfig = new HikariConfig();
+        poolConfig.setPoolName(poolName);
+        poolConfig.setDriverClassName(configuration.getProperty("connection.driver_class"));
+        poolConfig.setJdbcUrl(url);
+        poolConfig.setUsername(configuration.getProperty("hibernate.connection.username"));
+        poolConfig.setPassword(configuration.getProperty("hibernate.connection.password"));
+        poolConfig.setMaximumPoolSize(maximumPoolSize);
+        poolConfig.setMinimumIdle(Math.min(maximumPoolSize, Integer.parseInt(poolProperties.getProperty("pool.minimumIdle", "2"))));
+        poolConfig.setIdleTimeout(Long.parseLong(poolProperties.getProperty("pool.idleTimeoutMillis", "600000")));
+        poolConfig.setMaxLifetime(Long.parseLong(poolProperties.getProperty("pool.maxLifetimeMillis", "1800000")));
+        poolConfig.setConnectionTimeout(Long.parseLong(poolProperties.getProperty("pool.connectionTimeoutMillis", "30000")));
+        poolConfig.setValidationTimeout(Long.parseLong(poolProperties.getProperty("pool.validationTimeoutMillis", "5000")));
+        poolConfig.setConnectionTestQuery(poolProperties.getProperty("pool.connectionTestQuery"));
+        poolConfig.setLeakDetectionThreshold(Long.parseLong(poolProperties.getProperty("pool.leakDetectionThresholdMillis", "0")));
+        if (trackMetrics) {
+            poolConfig.setMetricsTrackerFactory(poolMetrics);
+        }
+        for (String name : poolProperties.stringPropertyNames()) {
+            // properties prefixed with "driver." are passed through to the JDBC driver of each connection
+            if (name.startsWith(DRIVER_PROPERTY_PREFIX)) {
+                poolConfig.addDataSourceProperty(name.substring(DRIVER_PROPERTY_PREFIX.length()), poolProperties.getProperty(name));
+            }
+        }
+        try {
+            return new HikariDataSource(poolConfig);
+        } catch (RuntimeException e) {
+            throw new DatabaseConnectionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the pool properties file once and returns the cached settings
+     * @return the settings of the pool properties file, empty if the file is absent
+     * @throws DatabaseConnectionException if the file cannot be read
+     */
+    private static Properties getPoolProperties() throws DatabaseConnectionException {
+        // singleton pattern with double-checked locking on the volatile field
+        Properties properties = poolProperties;
+        if (properties == null) {
+            synchronized (poolPropertiesLock) {
+                properties = poolProperties;
+                if (properties == null) {
+                    properties = new Properties();
+                    try (InputStream inputStream = DatabaseUtils.class.getClassLoader().getResourceAsStream(poolPropertiesFile)) {
+                        if (inputStream != null) {
+                            properties.load(inputStream);
+                        }
+                    } catch (IOException e) {
+                        throw new DatabaseConnectionException("Could not read pool settings. " + e.getMessage(), e);
+                    }
+                    poolProperties = properties;
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @return the greatest number of connections a pool opens
+     * @throws DatabaseConnectionException if the pool settings cannot be read
+     */
+    public static int getMaximumPoolSize() throws DatabaseConnectionException {
+        return Integer.parseInt(getPoolProperties().getProperty("pool.maximumPoolSize", String.valueOf(DEFAULT_MAXIMUM_POOL_SIZE)));
+    }
+
+    /**
+     * @return the number of rows a streaming query asks the driver to transfer per round trip
+     * @throws DatabaseConnectionException if the pool settings cannot be read
+     */
+    public static int getFetchSize() throws DatabaseConnectionException {
+        return Integer.parseInt(getPoolProperties().getProperty("query.fetchSize", String.valueOf(DEFAULT_FETCH_SIZE)));
+    }
+
+    /**
+     * @return the number of rows a bulk import sends to the database in one batch and commits together
+     * @throws DatabaseConnectionException if the pool settings cannot be read
+     */
+    public static int getBatchSize() throws DatabaseConnectionException {
+        return Integer.parseInt(getPoolProperties().getProperty("ingest.batchSize", String.valueOf(DEFAULT_BATCH_SIZE)));
+    }
+
+    /**
+     * @return the number of ids {@code IdAllocator} reserves for a table at once
+     * @throws DatabaseConnectionException if the pool settings cannot be read
+     */
+    public static int getIdAllocationSize() throws DatabaseConnectionException {
+        return Integer.parseInt(getPoolProperties().getProperty("ids.allocationSize", String.valueOf(DEFAULT_ID_ALLOCATION_SIZE)));
+    }
+
+    /**
+     * @return wait-time and occupancy metrics of the connection pool
+     */
+    public static PoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+
+    /**
+     * Borrows a connection from the pool.
+     * Callers must close the connection, preferably with try-with-resources, to return it to the pool.
      * @return a {@code Connection} to a database
      * @throws DatabaseConnectionException
      */
     public static Connection getConnection() throws DatabaseConnectionException {
-        Connection connection = null;
-        Configuration configuration = getConfiguration();
         try {
-            Class.forName(configuration.getProperty("connection.driver_class"));
-            String databaseUrl = configuration.getProperty("connection.url");
-            String username = configuration.getProperty("hibernate.connection.username");
-            String password = configuration.getProperty("hibernate.connection.password");
-            connection = DriverManager.getConnection(databaseUrl, username, password);
-        } catch (SQLException | ClassNotFoundException e) {
+            return getDataSource().getConnection();
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool reserved for {@code IdAllocator}, which never competes with the main pool.
+     * Callers must close the connection, preferably with try-with-resources, to return it to the pool.
+     * @return a {@code Connection} to the primary database
+     * @throws DatabaseConnectionException
+     */
+    public static Connection getIdConnection() throws DatabaseConnectionException {
+        try {
+            return getIdDataSource().getConnection();
+        } catch (SQLException e) {
             throw new DatabaseConnectionException(e.getMessage(), e);
         }
-        return connection;
     }
 
     /**
-     * A utility method that runs a database initialize script
+     * Borrows a connection for a read-only query from a replica within the replication-lag tolerance,
+     * or from the primary if no replica is configured or qualifies.
+     * Callers must close the connection, preferably with try-with-resources, to return it to its pool.
+     * @return a {@code Connection} to a replica or to the primary database
+     * @throws DatabaseConnectionException
+     */
+    public static Connection getReadConnection() throws DatabaseConnectionException {
+        try {
+            return getReplicaRouter().getReadConnection();
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tells whether a connection borrowed through {@link #getReadConnection()} was served by a read replica
+     * @param connection the read connection
+     * @return true if the connection belongs to a replica, false if it belongs to the primary database
+     * @throws DatabaseConnectionException if the connection cannot be inspected
+     */
+    public static boolean isReplicaConnection(Connection connection) throws DatabaseConnectionException {
+        try {
+            return getReplicaRouter().isReplica(connection);
+        } catch (SQLException e) {
+            throw new DatabaseConnectionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the router of the profile, e.g. by a test routing reads to a replica it created itself
+     * @param router the router to use from now on
+     */
+    static void setReplicaRouter(ReplicaRouter router) {
+        synchronized (replicaRouterLock) {
+            replicaRouter = router;
+        }
+    }
+
+    /**
+     * A utility method that runs a database initialize script, then the migration scripts that bring the schema up to date,
+     * which are read from the "migrations" directory next to the initialization script
      * @param initializationScript full path to the script to run to create the schema
      * @throws DatabaseInitializationException
      */
     public static void initializeDatabase(String initializationScript) throws DatabaseInitializationException {
 
-        Connection connection = null;
-        try {
-            connection = getConnection();
+        try (Connection connection = getConnection();
+             InputStreamReader reader = new InputStreamReader(new FileInputStream(initializationScript))) {
+            SymbolDictionary.INSTANCE.clear();
+            LatestQuoteTable.INSTANCE.clear();
+            HolderIndex.INSTANCE.clear();
+            IdAllocator.INSTANCE.clear();
             connection.setAutoCommit(false);
             ScriptRunner runner = new ScriptRunner(connection, false, false);
-            InputStream inputStream = new FileInputStream(initializationScript);
-
-            InputStreamReader reader = new InputStreamReader(inputStream);
-
             runner.runScript(reader);
-            reader.close();
             connection.commit();
-            connection.close();
-
+            SchemaMigrator.migrate(connection, SchemaMigrator.getMigrationsDirectory(initializationScript));
+            // symbol and person ids are reassigned by the script, so the dictionary and holder index are reloaded from the new rows
+            SymbolDictionary.INSTANCE.load(connection);
+            HolderIndex.INSTANCE.load(connection);
+            evictCaches();
         } catch (DatabaseConnectionException | SQLException |IOException e) {
             throw new DatabaseInitializationException("Could not initialize db because of:"
                     + e.getMessage(),e);
@@ -112,17 +405,26 @@ public final class  DatabaseUtils {
     }
 
     /**
-     * Retrieves XML data in the form of XML domain objects, which are converted to database access objects
-     * and stored in the database configuration defined in the hibernate xml file
+     * Retrieves XML data in the form of XML domain objects, which are converted to quotes
+     * and stored in the database configuration defined in the hibernate xml file.
+     * The file is pull-parsed one element at a time and the quotes are stored through the batched import of
+     * {@code DatabaseStockService}, which resolves each symbol once and commits once per batch of the size configured
+     * in the pool properties file, so that memory use does not grow with the size of the file.
      * @param xmlData a String containing a reference to the file containing the XML data to be persisted to the database
+     * @return the number of quotes stored, the throughput of the import and the latency of its commits
+     * @throws XMLUnmarshalException if the file cannot be read or is malformed; the batches committed before remain stored
+     * @throws StockServiceException if a batch cannot be stored; the batches committed before it remain stored
      */
-    public static final void persistXMLData(String xmlData) throws XMLUnmarshalException, StockServiceException {
-        XMLStockQuoteList quoteList = null;
-        quoteList = XMLUtils.unmarshal(xmlData);
-        List<XMLStockQuote> xmlQuotes = quoteList.getStock();
+    public static final IngestStatistics persistXMLData(String xmlData) throws XMLUnmarshalException, StockServiceException {
         DatabaseStockService service = (DatabaseStockService) ServiceFactory.createStockService(ServiceType.DATABASE);
-        for (XMLStockQuote quote : xmlQuotes) {
-            service.addOrUpdateQuote(DateTime.parse(quote.getTime(), StockQuote.getDateFormatter()), new BigDecimal(quote.getPrice()), new DatabaseStockSymbol(quote.getSymbol()));
+        try {
+            return service.addQuotes(StockQuoteCursors.fromXML(XMLUtils.openReader(xmlData)));
+        } catch (StockServiceException e) {
+            // a feed that fails to parse midway is reported as such rather than as a storage failure
+            if (e.getCause() instanceof XMLUnmarshalException) {
+                throw (XMLUnmarshalException) e.getCause();
+            }
+            throw e;
         }
     }
-}
\ No newline at end of file
+}
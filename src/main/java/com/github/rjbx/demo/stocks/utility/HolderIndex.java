@@ -0,0 +1,189 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.ThreadSafe;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A process-wide reverse index from the id of each symbol to the ids of the people holding it, as stored in the
+ * "person_stocks" table. The holders of a symbol are kept in a compressed bitmap, so that a lookup or a set operation
+ * over several symbols runs in memory without a query. The index is loaded in bulk when the database is initialized
+ * and kept current by the services that assign stocks to people.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class HolderIndex {
+    // fields of this class
+    public static final HolderIndex INSTANCE = new HolderIndex();
+    private static final String SELECT_ALL = "select symbol_id, person_id from person_stocks order by symbol_id, person_id";
+    private static final int INITIAL_CAPACITY = 64;
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private RoaringBitmap[] holdersBySymbolId = new RoaringBitmap[INITIAL_CAPACITY];
+    private volatile boolean loaded;
+
+    // hides the constructor so that the index is shared through the INSTANCE field
+    private HolderIndex() {
+    }
+
+    /**
+     * Replaces the contents of this index with every row of the "person_stocks" table
+     * @param connection the connection to read the table with
+     * @throws SQLException
+     */
+    public final void load(Connection connection) throws SQLException {
+        RoaringBitmap[] holders = new RoaringBitmap[INITIAL_CAPACITY];
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ALL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                int symbolId = resultSet.getInt(1);
+                if (symbolId >= holders.length) {
+                    holders = Arrays.copyOf(holders, Math.max(symbolId + 1, holders.length * 2));
+                }
+                if (holders[symbolId] == null) {
+                    holders[symbolId] = new RoaringBitmap();
+                }
+                holders[symbolId].add(resultSet.getInt(2));
+            }
+        }
+        // converts long runs of consecutive ids, typical of early users, into run-length containers
+        for (RoaringBitmap bitmap : holders) {
+            if (bitmap != null) {
+                bitmap.runOptimize();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            holdersBySymbolId = holders;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that a person holds a symbol, once the row assigning the symbol has been committed
+     * @param symbolId the id of the symbol
+     * @param personId the id of the person
+     */
+    public final void add(int symbolId, int personId) {
+        lock.writeLock().lock();
+        try {
+            if (symbolId >= holdersBySymbolId.length) {
+                holdersBySymbolId = Arrays.copyOf(holdersBySymbolId, Math.max(symbolId + 1, holdersBySymbolId.length * 2));
+            }
+            if (holdersBySymbolId[symbolId] == null) {
+                holdersBySymbolId[symbolId] = new RoaringBitmap();
+            }
+            holdersBySymbolId[symbolId].add(personId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the people holding a symbol
+     * @param symbolId the id of the symbol
+     * @return a copy of the bitmap of the ids of the people holding the symbol, empty if nobody holds it
+     */
+    public final RoaringBitmap getHolders(int symbolId) {
+        lock.readLock().lock();
+        try {
+            return holdersOf(symbolId).clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param symbolId the id of the symbol
+     * @return the number of people holding the symbol
+     */
+    public final int getHolderCount(int symbolId) {
+        lock.readLock().lock();
+        try {
+            return holdersOf(symbolId).getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the people holding every one of the given symbols
+     * @param symbolIds the ids of the symbols
+     * @return a bitmap of the ids of the people holding all of the symbols, empty if no symbols are given
+     */
+    public final RoaringBitmap getHoldersOfAll(int... symbolIds) {
+        lock.readLock().lock();
+        try {
+            return symbolIds.length == 0 ? new RoaringBitmap() : FastAggregation.and(holdersOf(symbolIds));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the people holding at least one of the given symbols
+     * @param symbolIds the ids of the symbols
+     * @return a bitmap of the ids of the people holding any of the symbols
+     */
+    public final RoaringBitmap getHoldersOfAny(int... symbolIds) {
+        lock.readLock().lock();
+        try {
+            return FastAggregation.or(holdersOf(symbolIds));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Discards every entry, e.g. after the database has been re-initialized
+     */
+    public final void clear() {
+        lock.writeLock().lock();
+        try {
+            holdersBySymbolId = new RoaringBitmap[INITIAL_CAPACITY];
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the index has been loaded from the database since it was last cleared
+     */
+    public final boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gets the bitmap of a symbol without copying it; the caller must hold a lock and must not modify the result
+     * @param symbolId the id of the symbol
+     * @return the bitmap of the holders of the symbol, or a shared empty bitmap
+     */
+    private RoaringBitmap holdersOf(int symbolId) {
+        RoaringBitmap holders = symbolId >= 0 && symbolId < holdersBySymbolId.length ? holdersBySymbolId[symbolId] : null;
+        return holders == null ? EMPTY : holders;
+    }
+
+    /**
+     * Gets the bitmaps of several symbols without copying them; the caller must hold a lock and must not modify the result
+     * @param symbolIds the ids of the symbols
+     * @return the bitmaps of the holders of the symbols, in the order of the ids
+     */
+    private RoaringBitmap[] holdersOf(int[] symbolIds) {
+        RoaringBitmap[] holders = new RoaringBitmap[symbolIds.length];
+        for (int i = 0; i < symbolIds.length; i++) {
+            holders[i] = holdersOf(symbolIds[i]);
+        }
+        return holders;
+    }
+}
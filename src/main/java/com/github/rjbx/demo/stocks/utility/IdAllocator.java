@@ -0,0 +1,119 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A process-wide source of row ids, reserved in blocks from the "id_generators" table.
+ * Each reservation advances the row of a table by the allocation size in a transaction of its own,
+ * and the ids of the block are then handed out from memory, so that an insert knows its id before it is sent
+ * and many inserts can be sent as one batch. Hibernate draws from it through {@code PooledIdGenerator},
+ * and plain JDBC inserts call it directly, so both never hand out the same id.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class IdAllocator {
+    // fields of this class
+    public static final IdAllocator INSTANCE = new IdAllocator();
+    private static final String RESERVE = "update id_generators set next_val = next_val + ? where name = ?";
+    private static final String SELECT_NEXT = "select next_val from id_generators where name = ?";
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<String, Block>();
+
+    // hides the constructor so that the allocator is shared through the INSTANCE field
+    private IdAllocator() {
+    }
+
+    /**
+     * Gets an id for a new row, reserving a new block if the current block of the table is used up
+     * @param table the name of the table, as stored in the "id_generators" table
+     * @return an id no other caller has been given
+     * @throws SQLException if a block cannot be reserved
+     */
+    public final int next(String table) throws SQLException {
+        Block block = blocks.get(table);
+        if (block == null) {
+            Block created = new Block();
+            block = blocks.putIfAbsent(table, created);
+            if (block == null) {
+                block = created;
+            }
+        }
+        synchronized (block) {
+            if (block.next == block.limit) {
+                block.limit = reserve(table);
+                block.next = block.limit - getAllocationSize();
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * Discards every unused block, e.g. after the database has been re-initialized
+     */
+    public final void clear() {
+        blocks.clear();
+    }
+
+    /**
+     * Advances the row of a table past one block and commits, on a connection of its own
+     * so that the block stays reserved whatever becomes of the transaction of the caller.
+     * The connection comes from the pool reserved for ids, since the caller may hold the last connection of the main pool.
+     * @param table the name of the table
+     * @return the first id after the reserved block
+     * @throws SQLException if the row does not exist or cannot be updated
+     */
+    private static int reserve(String table) throws SQLException {
+        try (Connection connection = DatabaseUtils.getIdConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement update = connection.prepareStatement(RESERVE);
+                 PreparedStatement select = connection.prepareStatement(SELECT_NEXT)) {
+                update.setInt(1, getAllocationSize());
+                update.setString(2, table);
+                if (update.executeUpdate() != 1) {
+                    throw new SQLException("No id generator for table " + table);
+                }
+                select.setString(1, table);
+                int limit;
+                try (ResultSet resultSet = select.executeQuery()) {
+                    resultSet.next();
+                    limit = resultSet.getInt(1);
+                }
+                connection.commit();
+                return limit;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (DatabaseConnectionException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the number of ids reserved at once
+     * @throws SQLException if the pool settings cannot be read
+     */
+    private static int getAllocationSize() throws SQLException {
+        try {
+            return DatabaseUtils.getIdAllocationSize();
+        } catch (DatabaseConnectionException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The unused ids of the block last reserved for a table, from next up to but excluding limit
+     */
+    private static final class Block {
+        private int next;
+        private int limit;
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.Immutable;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class reports how many rows a bulk import stored, in how many batches, how long it took,
+ * and how long it waited for its batches to commit.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class IngestStatistics {
+    // fields of this class
+    private final long rows;
+    private final long batches;
+    private final long elapsedNanos;
+    private final long commitNanos;
+    private final long maxCommitNanos;
+
+    /**
+     * Constructs a new {@code IngestStatistics} instance for an import whose commits were not timed
+     * @param rows number of rows stored
+     * @param batches number of batches the rows were sent and committed in
+     * @param elapsedNanos duration of the import in nanoseconds
+     */
+    public IngestStatistics(long rows, long batches, long elapsedNanos) {
+        this(rows, batches, elapsedNanos, 0, 0);
+    }
+
+    /**
+     * Constructs a new {@code IngestStatistics} instance
+     * @param rows number of rows stored
+     * @param batches number of batches the rows were sent and committed in
+     * @param elapsedNanos duration of the import in nanoseconds
+     * @param commitNanos total time spent committing batches in nanoseconds
+     * @param maxCommitNanos time spent committing the slowest batch in nanoseconds
+     */
+    public IngestStatistics(long rows, long batches, long elapsedNanos, long commitNanos, long maxCommitNanos) {
+        this.rows = rows;
+        this.batches = batches;
+        this.elapsedNanos = elapsedNanos;
+        this.commitNanos = commitNanos;
+        this.maxCommitNanos = maxCommitNanos;
+    }
+
+    /**
+     * Sums the statistics of imports which ran side by side; the slowest commit is the slowest of any part
+     * @param parts the statistics of the imports
+     * @param elapsedNanos duration in nanoseconds from the start of the first import to the end of the last
+     * @return the statistics of the imports taken together
+     */
+    public static IngestStatistics combine(Collection<IngestStatistics> parts, long elapsedNanos) {
+        long rows = 0;
+        long batches = 0;
+        long commitNanos = 0;
+        long maxCommitNanos = 0;
+        for (IngestStatistics part : parts) {
+            rows += part.rows;
+            batches += part.batches;
+            commitNanos += part.commitNanos;
+            maxCommitNanos = Math.max(maxCommitNanos, part.maxCommitNanos);
+        }
+        return new IngestStatistics(rows, batches, elapsedNanos, commitNanos, maxCommitNanos);
+    }
+
+    /**
+     * @return the number of rows stored
+     */
+    public final long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of batches the rows were sent and committed in
+     */
+    public final long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return the duration of the import in milliseconds
+     */
+    public final double getElapsedMillis() {
+        return (double) elapsedNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the number of rows stored per second, or 0 if no time elapsed
+     */
+    public final double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @return the mean time one batch took to commit in milliseconds, or 0 if no batch was committed
+     */
+    public final double getMeanCommitMillis() {
+        return batches == 0 ? 0 : (double) commitNanos / batches / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the time the slowest batch took to commit in milliseconds
+     */
+    public final double getMaxCommitMillis() {
+        return (double) maxCommitNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return a String containing the formatted values of the fields of this instance
+     */
+    @Override
+    public String toString() {
+        return String.format("ingest{rows=%d,batches=%d,elapsed=%.3fms,throughput=%.1f rows/s,commit mean=%.3fms,commit max=%.3fms}",
+                rows, batches, getElapsedMillis(), getRowsPerSecond(), getMeanCommitMillis(), getMaxCommitMillis());
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free accumulator of latency samples which reports the count, mean and maximum of recorded durations.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class LatencyRecorder {
+    // fields of this class
+    private final String name;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Constructs a new {@code LatencyRecorder} instance
+     * @param name describes the operation being timed
+     */
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a single sample
+     * @param nanos the duration of the operation in nanoseconds
+     */
+    public final void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records a single sample which began at the given {@code System.nanoTime()} value
+     * @param startNanos the value of {@code System.nanoTime()} when the operation began
+     */
+    public final void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the number of samples recorded
+     */
+    public final long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the sum of all samples recorded, in nanoseconds
+     */
+    public final long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * @return the mean of all samples recorded in milliseconds, or zero if no samples were recorded
+     */
+    public final double getMeanMillis() {
+        long samples = count.get();
+        return samples == 0 ? 0 : (double) totalNanos.get() / samples / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the largest sample recorded in milliseconds
+     */
+    public final double getMaxMillis() {
+        return (double) maxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Discards all samples recorded so far
+     */
+    public final void reset() {
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return a String containing the formatted values of the fields of this instance
+     */
+    @Override
+    public String toString() {
+        return String.format("%s{count=%d, mean=%.3fms, max=%.3fms}", name, getCount(), getMeanMillis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import org.apache.http.annotation.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A process-wide table of the newest {@code StockQuote} of each symbol, keyed by the id of the symbol.
+ * Readers fill an entry from the database on a miss; the write path offers every quote it stores,
+ * and an entry only ever moves forward in time, so a quote stored while a miss is being filled is not lost.
+ * Reads take no lock; updates share a lock which growing or clearing the table takes exclusively,
+ * so that no update is made to a table which is being copied.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class LatestQuoteTable {
+    // fields of this class
+    public static final LatestQuoteTable INSTANCE = new LatestQuoteTable();
+    private static final int INITIAL_CAPACITY = 64;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ReadWriteLock resizeLock = new ReentrantReadWriteLock();
+    private volatile AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<Entry>(INITIAL_CAPACITY);
+
+    // hides the constructor so that the table is shared through the INSTANCE field
+    private LatestQuoteTable() {
+    }
+
+    /**
+     * Gets the newest quote of a symbol if it has been loaded from the database
+     * @param symbolId the id of the symbol
+     * @return the newest {@code StockQuote}, or null if the entry must be loaded from the database
+     */
+    public final StockQuote get(int symbolId) {
+        AtomicReferenceArray<Entry> entries = this.entries;
+        Entry entry = symbolId < entries.length() ? entries.get(symbolId) : null;
+        if (entry == null || !entry.complete) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.quote;
+    }
+
+    /**
+     * Completes the entry of a symbol with the newest quote read from the database
+     * @param symbolId the id of the symbol
+     * @param quote the newest quote stored for the symbol
+     * @return the quote now held by the entry, which is newer than the argument if one was offered meanwhile
+     */
+    public final StockQuote load(int symbolId, StockQuote quote) {
+        return merge(symbolId, quote, true).quote;
+    }
+
+    /**
+     * Offers a quote which has just been stored, replacing the entry of its symbol if the quote is newer
+     * @param symbolId the id of the symbol
+     * @param quote the stored quote
+     */
+    public final void offer(int symbolId, StockQuote quote) {
+        merge(symbolId, quote, false);
+    }
+
+    /**
+     * Discards every entry, e.g. after the database has been re-initialized
+     */
+    public final void clear() {
+        resizeLock.writeLock().lock();
+        try {
+            entries = new AtomicReferenceArray<Entry>(INITIAL_CAPACITY);
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of reads answered from memory
+     */
+    public final long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of reads that had to query the database
+     */
+    public final long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Replaces the entry of a symbol with the newer of its current quote and the given quote
+     * @param symbolId the id of the symbol
+     * @param quote the candidate quote
+     * @param complete true if the quote was read from the database as the newest stored quote
+     * @return the resulting entry
+     */
+    private Entry merge(int symbolId, StockQuote quote, boolean complete) {
+        while (true) {
+            if (symbolId >= entries.length()) {
+                grow(symbolId);
+            }
+            resizeLock.readLock().lock();
+            try {
+                AtomicReferenceArray<Entry> entries = this.entries;
+                // the table was cleared after it was grown
+                if (symbolId >= entries.length()) {
+                    continue;
+                }
+                while (true) {
+                    Entry current = entries.get(symbolId);
+                    Entry next;
+                    if (current == null) {
+                        next = new Entry(quote, complete);
+                    } else if (current.quote.getTime().isAfter(quote.getTime())) {
+                        next = complete && !current.complete ? new Entry(current.quote, true) : current;
+                    } else {
+                        next = new Entry(quote, complete || current.complete);
+                    }
+                    // retries if another update changed the slot
+                    if (next == current || entries.compareAndSet(symbolId, current, next)) {
+                        return next;
+                    }
+                }
+            } finally {
+                resizeLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Grows the table so that it has a slot for the given id, while no update is being made
+     * @param symbolId the id of a symbol
+     */
+    private void grow(int symbolId) {
+        resizeLock.writeLock().lock();
+        try {
+            AtomicReferenceArray<Entry> entries = this.entries;
+            if (symbolId >= entries.length()) {
+                AtomicReferenceArray<Entry> grown = new AtomicReferenceArray<Entry>(Math.max(symbolId + 1, entries.length() * 2));
+                for (int i = 0; i < entries.length(); i++) {
+                    grown.set(i, entries.get(i));
+                }
+                this.entries = grown;
+            }
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * An immutable slot of the table; an incomplete entry holds a quote offered before the symbol was loaded
+     */
+    private static final class Entry {
+        private final StockQuote quote;
+        private final boolean complete;
+
+        private Entry(StockQuote quote, boolean complete) {
+            this.quote = quote;
+            this.complete = complete;
+        }
+    }
+}
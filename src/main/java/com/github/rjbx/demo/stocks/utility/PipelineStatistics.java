@@ -0,0 +1,112 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.Immutable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class reports the throughput of each stage of a pipelined import: how fast the parser produced quotes,
+ * how long it stalled because the writers fell behind, how full the queues between the stages ran,
+ * and what the writers stored together.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class PipelineStatistics {
+    // fields of this class
+    private final long parsedRows;
+    private final long parseNanos;
+    private final long stallNanos;
+    private final int writers;
+    private final int queueCapacity;
+    private final int maxQueueDepth;
+    private final double meanQueueDepth;
+    private final IngestStatistics written;
+
+    /**
+     * Constructs a new {@code PipelineStatistics} instance
+     * @param parsedRows number of quotes the parser produced
+     * @param parseNanos time the parser spent reading the feed, excluding stalls, in nanoseconds
+     * @param stallNanos time the parser spent waiting for room in a full queue in nanoseconds
+     * @param writers number of writers
+     * @param queueCapacity number of batches each queue holds
+     * @param maxQueueDepth the most batches found waiting in a queue when the parser added one
+     * @param meanQueueDepth the mean number of batches found waiting in a queue when the parser added one
+     * @param written the rows, batches, duration and commit latency of the writers taken together
+     */
+    public PipelineStatistics(long parsedRows, long parseNanos, long stallNanos, int writers, int queueCapacity,
+                              int maxQueueDepth, double meanQueueDepth, IngestStatistics written) {
+        this.parsedRows = parsedRows;
+        this.parseNanos = parseNanos;
+        this.stallNanos = stallNanos;
+        this.writers = writers;
+        this.queueCapacity = queueCapacity;
+        this.maxQueueDepth = maxQueueDepth;
+        this.meanQueueDepth = meanQueueDepth;
+        this.written = written;
+    }
+
+    /**
+     * @return the number of quotes the parser produced
+     */
+    public final long getParsedRows() {
+        return parsedRows;
+    }
+
+    /**
+     * @return the number of quotes the parser produced per second of parsing, or 0 if no time was spent parsing
+     */
+    public final double getParsedRowsPerSecond() {
+        return parseNanos == 0 ? 0 : parsedRows * (double) TimeUnit.SECONDS.toNanos(1) / parseNanos;
+    }
+
+    /**
+     * @return the time the parser spent waiting for the writers in milliseconds
+     */
+    public final double getStallMillis() {
+        return (double) stallNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the number of writers
+     */
+    public final int getWriters() {
+        return writers;
+    }
+
+    /**
+     * @return the number of batches each queue holds
+     */
+    public final int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return the most batches found waiting in a queue when the parser added one
+     */
+    public final int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return the mean number of batches found waiting in a queue when the parser added one
+     */
+    public final double getMeanQueueDepth() {
+        return meanQueueDepth;
+    }
+
+    /**
+     * @return the rows, batches, throughput and commit latency of the writers taken together
+     */
+    public final IngestStatistics getWritten() {
+        return written;
+    }
+
+    /**
+     * @return a String containing the formatted values of the fields of this instance
+     */
+    @Override
+    public String toString() {
+        return String.format("pipeline{parsed=%d,parse throughput=%.1f rows/s,stalled=%.3fms,writers=%d,queue depth mean=%.2f max=%d of %d,written=%s}",
+                parsedRows, getParsedRowsPerSecond(), getStallMillis(), writers, meanQueueDepth, maxQueueDepth, queueCapacity, written);
+    }
+}
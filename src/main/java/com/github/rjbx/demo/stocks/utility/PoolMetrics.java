@@ -0,0 +1,111 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.apache.http.annotation.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class collects wait-time and occupancy metrics for the connection pool behind {@code DatabaseUtils},
+ * and implements the {@code MetricsTrackerFactory} interface so that the pool reports to it directly.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class PoolMetrics implements MetricsTrackerFactory {
+    // fields of this class
+    private final LatencyRecorder waitTime = new LatencyRecorder("connection wait");
+    private final LatencyRecorder usageTime = new LatencyRecorder("connection usage");
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private volatile PoolStats poolStats;
+
+    /**
+     * Creates the tracker the pool invokes on every borrow and return
+     * @param poolName the name of the pool being tracked
+     * @param poolStats a live view of the pool occupancy
+     * @return a {@code MetricsTracker} reporting to this instance
+     */
+    @Override
+    public final MetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new MetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                waitTime.record(elapsedAcquiredNanos);
+                activeConnections.incrementAndGet();
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageTime.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+                activeConnections.decrementAndGet();
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * @return the time callers spent waiting to borrow a connection
+     */
+    public final LatencyRecorder getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * @return the time connections spent borrowed before being returned
+     */
+    public final LatencyRecorder getUsageTime() {
+        return usageTime;
+    }
+
+    /**
+     * @return the number of borrow attempts that gave up waiting for a connection
+     */
+    public final long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return the number of connections currently borrowed, counted on every borrow and return
+     */
+    public final int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * @return the number of connections idle in the pool, as sampled by the pool at most once per second
+     */
+    public final int getIdleConnections() {
+        return poolStats == null ? 0 : poolStats.getIdleConnections();
+    }
+
+    /**
+     * @return the number of threads waiting to borrow a connection, as sampled by the pool at most once per second
+     */
+    public final int getPendingThreads() {
+        return poolStats == null ? 0 : poolStats.getPendingThreads();
+    }
+
+    /**
+     * @return a String containing the formatted values of the fields of this instance
+     */
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "active=" + getActiveConnections() +
+                ", idle=" + getIdleConnections() +
+                ", pending=" + getPendingThreads() +
+                ", timeouts=" + getTimeouts() +
+                ", " + waitTime +
+                ", " + usageTime +
+                '}';
+    }
+}
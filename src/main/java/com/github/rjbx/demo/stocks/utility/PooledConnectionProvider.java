@@ -0,0 +1,72 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.jdbc.connections.spi.ConnectionProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * This class hands Hibernate connections borrowed from the pool behind {@code DatabaseUtils},
+ * so that sessions and plain JDBC access share one bounded set of connections.
+ * It is registered through the "hibernate.connection.provider_class" property of the hibernate xml file.
+ * @author Bob Basmaji
+ */
+public final class PooledConnectionProvider implements ConnectionProvider {
+
+    /**
+     * Borrows a connection from the pool
+     * @return a pooled {@code Connection}
+     * @throws SQLException if no connection could be borrowed
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return DatabaseUtils.getDataSource().getConnection();
+        } catch (DatabaseConnectionException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool
+     * @param connection a connection previously obtained from {@link #getConnection()}
+     * @throws SQLException
+     */
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * @return true because pooled connections may be released after each statement
+     */
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return true;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class unwrapType) {
+        return ConnectionProvider.class.equals(unwrapType)
+                || PooledConnectionProvider.class.isAssignableFrom(unwrapType)
+                || DataSource.class.isAssignableFrom(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (ConnectionProvider.class.equals(unwrapType) || PooledConnectionProvider.class.isAssignableFrom(unwrapType)) {
+            return (T) this;
+        } else if (DataSource.class.isAssignableFrom(unwrapType)) {
+            try {
+                return (T) DatabaseUtils.getDataSource();
+            } catch (DatabaseConnectionException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        } else {
+            throw new UnknownUnwrapTypeException(unwrapType);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.hibernate.MappingException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerationException;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * This class hands Hibernate ids reserved in blocks by {@code IdAllocator}, so that an entity has its id
+ * before its insert is sent and Hibernate can batch the inserts, which it cannot do for ids assigned by the database.
+ * It is registered on an entity with {@code @GenericGenerator}, naming the table to draw ids for in the "table" parameter.
+ * @author Bob Basmaji
+ */
+public final class PooledIdGenerator implements IdentifierGenerator, Configurable {
+    // fields of this class
+    public static final String TABLE = "table";
+    private String table;
+
+    /**
+     * Reads the name of the table to draw ids for from the parameters of the generator
+     * @param type the type of the id
+     * @param params the parameters of the generator
+     * @param dialect the dialect of the database
+     * @throws MappingException if the "table" parameter is missing
+     */
+    @Override
+    public void configure(Type type, Properties params, Dialect dialect) throws MappingException {
+        table = params.getProperty(TABLE);
+        if (table == null) {
+            throw new MappingException("PooledIdGenerator requires the \"" + TABLE + "\" parameter");
+        }
+    }
+
+    /**
+     * @param session the session saving the entity
+     * @param object the entity being saved
+     * @return the next id of the table
+     * @throws IdentifierGenerationException if a block of ids cannot be reserved
+     */
+    @Override
+    public Serializable generate(SessionImplementor session, Object object) {
+        try {
+            return IdAllocator.INSTANCE.next(table);
+        } catch (SQLException e) {
+            throw new IdentifierGenerationException("Could not reserve ids for " + table + ". " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.Immutable;
+
+/**
+ * This class handles exceptions of the {@code PortfolioValuationEngine} class,
+ * and extends {@code Throwable}.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class PortfolioValuationException extends Exception {
+
+    /**
+     * @param message describes the exception
+     */
+    public PortfolioValuationException(String message) {
+        super(message);
+    }
+
+    /**
+     * @param message describes the exception
+     * @param cause   if this exception is caused by another exception
+     */
+    public PortfolioValuationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
\ No newline at end of file
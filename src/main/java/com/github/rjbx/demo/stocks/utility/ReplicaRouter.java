@@ -0,0 +1,259 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes connections between a primary database and its read replicas. Writes always go to the primary;
+ * reads go to a replica whose replication lag is within the tolerance, chosen in turn or by the lowest probe latency,
+ * and fall back to the primary when no replica qualifies.
+ * Lag is measured through the "replication_heartbeat" table: each probe stamps the current time into the row on
+ * the primary, and the lag of a replica is the age of the stamp it has replicated so far. Probes run on the thread
+ * asking for a read connection, at most one at a time and no more often than the probe interval.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class ReplicaRouter {
+    // fields of this class
+    private static final String UPDATE_HEARTBEAT = "update replication_heartbeat set beat_millis = ? where id = 1";
+    private static final String SELECT_HEARTBEAT = "select beat_millis from replication_heartbeat where id = 1";
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Selection selection;
+    private final long maxLagMillis;
+    private final long probeIntervalMillis;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong primaryReads = new AtomicLong();
+    private volatile long lastProbeMillis;
+
+    /**
+     * The ways a replica is chosen among those within the lag tolerance
+     */
+    public enum Selection {
+        /** each read goes to the next qualifying replica in turn */
+        ROUND_ROBIN,
+        /** each read goes to the qualifying replica which answered the last probe fastest */
+        LEAST_LATENCY
+    }
+
+    /**
+     * Constructs a new {@code ReplicaRouter} instance
+     * @param primary the database receiving writes, and reads when no replica qualifies
+     * @param replicas the read replicas of the primary, possibly none
+     * @param selection the way a replica is chosen among those within the lag tolerance
+     * @param maxLagMillis the greatest replication lag in milliseconds a replica may have to serve reads
+     * @param probeIntervalMillis the least time in milliseconds between two probes of the replicas
+     */
+    public ReplicaRouter(DataSource primary, List<? extends DataSource> replicas, Selection selection, long maxLagMillis, long probeIntervalMillis) {
+        if (primary == null || replicas == null || selection == null || maxLagMillis < 0 || probeIntervalMillis < 0) {
+            throw new IllegalArgumentException("A primary, a list of replicas, a selection and non-negative durations are required");
+        }
+        List<Replica> list = new ArrayList<Replica>(replicas.size());
+        for (DataSource replica : replicas) {
+            list.add(new Replica(replica));
+        }
+        this.primary = primary;
+        this.replicas = Collections.unmodifiableList(list);
+        this.selection = selection;
+        this.maxLagMillis = maxLagMillis;
+        this.probeIntervalMillis = probeIntervalMillis;
+    }
+
+    /**
+     * Borrows a connection for writing, which always comes from the primary
+     * @return a {@code Connection} to the primary
+     * @throws SQLException if the primary cannot be reached
+     */
+    public final Connection getWriteConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    /**
+     * Borrows a connection for reading from a replica within the lag tolerance, or from the primary if there is none
+     * or the chosen replica cannot be reached
+     * @return a {@code Connection} to a replica or to the primary
+     * @throws SQLException if the primary cannot be reached when falling back to it
+     */
+    public final Connection getReadConnection() throws SQLException {
+        if (!replicas.isEmpty()) {
+            if (System.currentTimeMillis() - lastProbeMillis >= probeIntervalMillis) {
+                probeIfIdle();
+            }
+            Replica replica = choose();
+            if (replica != null) {
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    if (replica.url == null) {
+                        replica.url = connection.getMetaData().getURL();
+                    }
+                    replicaReads.incrementAndGet();
+                    return connection;
+                } catch (SQLException e) {
+                    // the replica is skipped until a later probe reaches it again
+                    replica.healthy = false;
+                }
+            }
+        }
+        primaryReads.incrementAndGet();
+        return primary.getConnection();
+    }
+
+    /**
+     * Tells whether a read connection was served by a replica, whose rows may lag behind the primary.
+     * Rows read from a replica must not be cached, since the cache would keep them after the primary has moved on.
+     * @param connection a connection borrowed through {@link #getReadConnection()}
+     * @return true if the connection belongs to a replica, false if it belongs to the primary
+     * @throws SQLException if the connection cannot be inspected
+     */
+    public final boolean isReplica(Connection connection) throws SQLException {
+        if (replicas.isEmpty()) {
+            return false;
+        }
+        String url = connection.getMetaData().getURL();
+        for (Replica replica : replicas) {
+            if (url.equals(replica.url)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stamps the heartbeat on the primary and measures the lag and latency of every replica.
+     * If the primary cannot be stamped the lag of the replicas is unknown, so all of them are excluded until the next probe.
+     */
+    public final void probe() {
+        long beatMillis = System.currentTimeMillis();
+        boolean stamped;
+        try (Connection connection = primary.getConnection();
+             PreparedStatement statement = connection.prepareStatement(UPDATE_HEARTBEAT)) {
+            statement.setLong(1, beatMillis);
+            statement.executeUpdate();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+            stamped = true;
+        } catch (SQLException e) {
+            stamped = false;
+        }
+        for (Replica replica : replicas) {
+            long startNanos = System.nanoTime();
+            try (Connection connection = replica.dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(SELECT_HEARTBEAT);
+                 ResultSet resultSet = statement.executeQuery()) {
+                replica.latencyNanos = System.nanoTime() - startNanos;
+                replica.url = connection.getMetaData().getURL();
+                replica.lagMillis = resultSet.next() ? Math.max(0, System.currentTimeMillis() - resultSet.getLong(1)) : Long.MAX_VALUE;
+                replica.healthy = stamped;
+            } catch (SQLException e) {
+                replica.lagMillis = Long.MAX_VALUE;
+                replica.healthy = false;
+            }
+        }
+        lastProbeMillis = beatMillis;
+    }
+
+    /**
+     * @return the number of replicas this router may read from
+     */
+    public final int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Gets the lag of a replica measured by the last probe
+     * @param index the position of the replica in the list given to the constructor
+     * @return the lag in milliseconds, or {@code Long.MAX_VALUE} if the replica has not been reached by a probe
+     */
+    public final long getLagMillis(int index) {
+        return replicas.get(index).lagMillis;
+    }
+
+    /**
+     * @return the number of read connections served by a replica
+     */
+    public final long getReplicaReads() {
+        return replicaReads.get();
+    }
+
+    /**
+     * @return the number of read connections served by the primary
+     */
+    public final long getPrimaryReads() {
+        return primaryReads.get();
+    }
+
+    /**
+     * Probes the replicas unless another thread is probing them already
+     */
+    private void probeIfIdle() {
+        if (probing.compareAndSet(false, true)) {
+            try {
+                probe();
+            } finally {
+                probing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Chooses a replica within the lag tolerance according to the selection of this router
+     * @return the chosen replica, or null if none qualifies
+     */
+    private Replica choose() {
+        int count = replicas.size();
+        if (selection == Selection.LEAST_LATENCY) {
+            Replica fastest = null;
+            for (Replica replica : replicas) {
+                if (qualifies(replica) && (fastest == null || replica.latencyNanos < fastest.latencyNanos)) {
+                    fastest = replica;
+                }
+            }
+            return fastest;
+        }
+        int start = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % count;
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (qualifies(replica)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param replica a replica of the primary
+     * @return true if the replica was reached by the last probe and its lag is within the tolerance
+     */
+    private boolean qualifies(Replica replica) {
+        return replica.healthy && replica.lagMillis <= maxLagMillis;
+    }
+
+    /**
+     * A replica together with what the last probe measured of it, and the URL its connections report once one is borrowed
+     */
+    private static final class Replica {
+        private final DataSource dataSource;
+        private volatile String url;
+        private volatile boolean healthy;
+        private volatile long lagMillis = Long.MAX_VALUE;
+        private volatile long latencyNanos = Long.MAX_VALUE;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.ibatis.common.jdbc.ScriptRunner;
+import org.apache.http.annotation.Immutable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A class that brings the schema created by the initialization script up to date with versioned migration scripts.
+ * Scripts are named "V{version}__{description}.sql" and run in order of version; each version that has run is recorded
+ * in the "schema_version" table, so running the migrator again only applies scripts added since.
+ * The initialization script itself is recorded as version 1.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class SchemaMigrator {
+    // fields of this class
+    public static final String MIGRATIONS_DIRECTORY_NAME = "migrations";
+    public static final String migrationsDirectory = "src/main/resources/sql/" + MIGRATIONS_DIRECTORY_NAME;
+    public static final int BASELINE_VERSION = 1;
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS schema_version("
+            + " version INT NOT NULL, description VARCHAR(256) NOT NULL,"
+            + " installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (version))";
+    private static final String SELECT_CURRENT_VERSION = "select max(version) from schema_version";
+    private static final String INSERT_VERSION = "insert into schema_version (version, description) values (?, ?)";
+
+    /**
+     * Hides the constructor because this class contains only static methods
+     */
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Applies every migration script of a directory whose version is newer than the version of the schema
+     * @param connection the connection to migrate the schema with
+     * @param directory path to the directory containing the migration scripts
+     * @return the version of the schema after migrating
+     * @throws DatabaseInitializationException if a script fails; the versions applied before it remain recorded
+     */
+    public static int migrate(Connection connection, String directory) throws DatabaseInitializationException {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                int version = getVersion(connection);
+                for (File script : listScripts(directory)) {
+                    int scriptVersion = versionOf(script);
+                    if (scriptVersion > version) {
+                        runScript(connection, script);
+                        recordVersion(connection, scriptVersion, descriptionOf(script));
+                        connection.commit();
+                        version = scriptVersion;
+                    }
+                }
+                return version;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | IOException e) {
+            throw new DatabaseInitializationException("Could not migrate db because of:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param initializationScript path to the script creating the schema
+     * @return path to the directory of migration scripts, which lies next to the initialization script
+     */
+    public static String getMigrationsDirectory(String initializationScript) {
+        File scriptDirectory = new File(initializationScript).getAbsoluteFile().getParentFile();
+        return new File(scriptDirectory, MIGRATIONS_DIRECTORY_NAME).getPath();
+    }
+
+    /**
+     * Reads the version of the schema, recording the initialization script as the baseline of a new schema
+     * @param connection the connection to read the version with
+     * @return the version of the newest migration applied to the schema
+     * @throws SQLException
+     */
+    public static int getVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_VERSION_TABLE);
+            try (ResultSet resultSet = statement.executeQuery(SELECT_CURRENT_VERSION)) {
+                if (resultSet.next() && resultSet.getInt(1) > 0) {
+                    return resultSet.getInt(1);
+                }
+            }
+        }
+        recordVersion(connection, BASELINE_VERSION, "stocks db initialization");
+        connection.commit();
+        return BASELINE_VERSION;
+    }
+
+    /**
+     * Lists the migration scripts of a directory in order of version
+     * @param directory path to the directory containing the migration scripts
+     * @return the scripts
+     * @throws FileNotFoundException if the directory does not exist, so that a schema is never left unmigrated unnoticed
+     */
+    private static File[] listScripts(String directory) throws FileNotFoundException {
+        File[] scripts = new File(directory).listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return SCRIPT_NAME.matcher(name).matches();
+            }
+        });
+        if (scripts == null) {
+            throw new FileNotFoundException("Migrations directory " + new File(directory).getAbsolutePath() + " does not exist");
+        }
+        Arrays.sort(scripts, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return Integer.compare(versionOf(first), versionOf(second));
+            }
+        });
+        return scripts;
+    }
+
+    /**
+     * @param script a migration script
+     * @return the version in the name of the script
+     */
+    private static int versionOf(File script) {
+        Matcher matcher = SCRIPT_NAME.matcher(script.getName());
+        matcher.matches();
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    /**
+     * @param script a migration script
+     * @return the description in the name of the script, with underscores replaced by spaces
+     */
+    private static String descriptionOf(File script) {
+        Matcher matcher = SCRIPT_NAME.matcher(script.getName());
+        matcher.matches();
+        return matcher.group(2).replace('_', ' ');
+    }
+
+    /**
+     * Runs a script, stopping at the first statement that fails
+     * @param connection the connection to run the script with
+     * @param script the script to run
+     * @throws SQLException
+     * @throws IOException
+     */
+    private static void runScript(Connection connection, File script) throws SQLException, IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(script))) {
+            ScriptRunner runner = new ScriptRunner(connection, false, true);
+            runner.setLogWriter(null);
+            runner.runScript(reader);
+        }
+    }
+
+    /**
+     * Records that a version has been applied
+     * @param connection the connection to record the version with
+     * @param version the version applied
+     * @param description what the version changed
+     * @throws SQLException
+     */
+    private static void recordVersion(Connection connection, int version, String description) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_VERSION)) {
+            statement.setInt(1, version);
+            statement.setString(2, description);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A process-wide dictionary between stock symbols and the ids of their rows in the "stock_symbols" table.
+ * Symbols are kept in a primitive open-addressing table so that resolving a symbol costs no boxing and no query.
+ * The dictionary is loaded in bulk on first use and kept current by the services that create symbols.
+ * @author Bob Basmaji
+ */
+@ThreadSafe
+public final class SymbolDictionary {
+    // fields of this class
+    public static final SymbolDictionary INSTANCE = new SymbolDictionary();
+    public static final int NO_ID = -1;
+    private static final String SELECT_ALL = "select id, symbol from stock_symbols order by id";
+    private static final String SELECT_ONE = "select id from stock_symbols where symbol = ? order by id";
+    private static final int INITIAL_CAPACITY = 64;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private String[] symbolsById = new String[INITIAL_CAPACITY];
+    private int size;
+    private volatile boolean loaded;
+
+    // hides the constructor so that the dictionary is shared through the INSTANCE field
+    private SymbolDictionary() {
+    }
+
+    /**
+     * Replaces the contents of this dictionary with every row of the "stock_symbols" table
+     * @param connection the connection to read the table with
+     * @throws SQLException
+     */
+    public final void load(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ALL);
+             ResultSet resultSet = statement.executeQuery()) {
+            lock.writeLock().lock();
+            try {
+                clearTable();
+                while (resultSet.next()) {
+                    // the lowest id wins if a symbol was stored more than once
+                    String symbol = resultSet.getString(2);
+                    if (indexOf(symbol) < 0) {
+                        insert(symbol, resultSet.getInt(1));
+                    }
+                }
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the id of a symbol from memory only
+     * @param symbol the symbol for the company issuing the stock
+     * @return the id of the symbol, or {@code NO_ID} if the dictionary does not contain it
+     */
+    public final int lookup(String symbol) {
+        lock.readLock().lock();
+        try {
+            int index = indexOf(symbol);
+            if (index < 0) {
+                misses.incrementAndGet();
+                return NO_ID;
+            }
+            hits.incrementAndGet();
+            return ids[index];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the id of a symbol, loading the dictionary on first use and
+     * querying the "stock_symbols" table for symbols created by another process
+     * @param connection the connection to query with if the symbol is not in memory
+     * @param symbol the symbol for the company issuing the stock
+     * @return the id of the symbol, or {@code NO_ID} if the table does not contain it
+     * @throws SQLException
+     */
+    public final int resolve(Connection connection, String symbol) throws SQLException {
+        if (!loaded) {
+            load(connection);
+        }
+        int id = lookup(symbol);
+        if (id == NO_ID) {
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_ONE)) {
+                statement.setString(1, symbol);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        id = resultSet.getInt(1);
+                        register(symbol, id);
+                    }
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Gets the symbol stored with an id
+     * @param id the id of a row of the "stock_symbols" table
+     * @return the symbol, or null if the dictionary does not contain the id
+     */
+    public final String getSymbol(int id) {
+        lock.readLock().lock();
+        try {
+            return id >= 0 && id < symbolsById.length ? symbolsById[id] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a symbol which has just been stored, or replaces the id of a symbol already present
+     * @param symbol the symbol for the company issuing the stock
+     * @param id the id of the row storing the symbol
+     */
+    public final void register(String symbol, int id) {
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(symbol);
+            if (index < 0) {
+                insert(symbol, id);
+            } else {
+                ids[index] = id;
+                putSymbol(id, symbol);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discards every entry, e.g. after the database has been re-initialized; the next resolve reloads the table
+     */
+    public final void clear() {
+        lock.writeLock().lock();
+        try {
+            clearTable();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the dictionary has been loaded from the database since it was last cleared
+     */
+    public final boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the number of symbols in the dictionary
+     */
+    public final int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of lookups answered from memory
+     */
+    public final long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups for symbols not in memory
+     */
+    public final long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Finds the slot holding a symbol by linear probing; the caller must hold a lock
+     * @param symbol the symbol to find
+     * @return the slot index, or a negative value if the symbol is absent
+     */
+    private int indexOf(String symbol) {
+        int mask = keys.length - 1;
+        for (int index = mix(symbol.hashCode()) & mask; keys[index] != null; index = (index + 1) & mask) {
+            if (keys[index].equals(symbol)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a symbol known to be absent, doubling the table when it becomes half full; the caller must hold the write lock
+     * @param symbol the symbol to add
+     * @param id the id of the symbol
+     */
+    private void insert(String symbol, int id) {
+        if ((size + 1) * 2 > keys.length) {
+            String[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new String[oldKeys.length * 2];
+            ids = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    place(oldKeys[i], oldIds[i]);
+                }
+            }
+        }
+        place(symbol, id);
+        putSymbol(id, symbol);
+        size++;
+    }
+
+    /**
+     * Stores a symbol in the first free slot of its probe sequence; the caller must hold the write lock
+     * @param symbol the symbol to store
+     * @param id the id of the symbol
+     */
+    private void place(String symbol, int id) {
+        int mask = keys.length - 1;
+        int index = mix(symbol.hashCode()) & mask;
+        while (keys[index] != null) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = symbol;
+        ids[index] = id;
+    }
+
+    /**
+     * Stores the reverse mapping of an id, growing the reverse table to fit; the caller must hold the write lock
+     * @param id the id of the symbol
+     * @param symbol the symbol
+     */
+    private void putSymbol(int id, String symbol) {
+        if (id >= symbolsById.length) {
+            symbolsById = Arrays.copyOf(symbolsById, Math.max(id + 1, symbolsById.length * 2));
+        }
+        symbolsById[id] = symbol;
+    }
+
+    /**
+     * Empties both tables; the caller must hold the write lock
+     */
+    private void clearTable() {
+        keys = new String[INITIAL_CAPACITY];
+        ids = new int[INITIAL_CAPACITY];
+        symbolsById = new String[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Spreads the bits of a hash code so that similar symbols do not cluster in the table
+     * @param hash a hash code
+     * @return the mixed hash code
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,240 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.NotThreadSafe;
+import org.hibernate.CacheMode;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.TransactionException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Hibernate session and transaction shared by every database call a thread makes for one request or batch.
+ * The first {@link #begin()} on a thread opens the session; later calls on the same thread join it, so that a page
+ * reading persons and their stocks uses one session instead of one per call. Only the outermost handle commits and
+ * closes the session, and a unit closed without committing is rolled back, which also happens to the whole unit
+ * when a joined handle is closed without committing.
+ * Work that must only be published once the changes are durable, such as updating an in-memory index,
+ * is deferred with {@link #afterCommit(Runnable)}.
+ * A unit opened with {@link #beginReadOnly()} reads through a connection from {@code DatabaseUtils.getReadConnection()},
+ * which may belong to a read replica, and cannot be joined by a handle that writes; what it reads from a replica
+ * is not cached, since a lagging replica may return rows the primary has already replaced.
+ * Session-open and flush durations are recorded process-wide.
+ * <pre>
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *     ...
+ *     work.commit();
+ * }
+ * </pre>
+ * @author Bob Basmaji
+ */
+@NotThreadSafe
+public final class UnitOfWork implements AutoCloseable {
+    // fields of this class
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<UnitOfWork>();
+    private static final LatencyRecorder sessionOpenTime = new LatencyRecorder("session open");
+    private static final LatencyRecorder flushTime = new LatencyRecorder("session flush");
+    private final Session session;
+    private final Transaction transaction;
+    private final Connection readConnection;
+    private final List<Runnable> commitActions = new ArrayList<Runnable>();
+    private int depth;
+    private boolean committed;
+    private boolean rollbackOnly;
+
+    /**
+     * Constructs a new {@code UnitOfWork} instance around an open session and its transaction
+     * @param session the session of the unit
+     * @param transaction the active transaction of the session
+     * @param readConnection the read connection the session was opened on, or null if the session borrows its own
+     */
+    private UnitOfWork(Session session, Transaction transaction, Connection readConnection) {
+        this.session = session;
+        this.transaction = transaction;
+        this.readConnection = readConnection;
+    }
+
+    /**
+     * Joins the unit of work of the current thread, or opens a new session and transaction if there is none
+     * @return the unit of work of the current thread, to be closed by the caller
+     * @throws HibernateException if no session can be opened
+     * @throws TransactionException if the unit of work of the current thread is read-only
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork work = current.get();
+        if (work == null) {
+            long startNanos = System.nanoTime();
+            work = open(DatabaseUtils.getSessionFactory().openSession(), null);
+            sessionOpenTime.recordSince(startNanos);
+            current.set(work);
+        } else if (work.isReadOnly()) {
+            throw new TransactionException("A read-only unit of work cannot be joined for writing");
+        }
+        work.depth++;
+        return work;
+    }
+
+    /**
+     * Joins the unit of work of the current thread, or opens a new read-only session on a read connection if there is none.
+     * The entities the session loads are read-only, and the read connection goes back to its pool when the unit closes.
+     * A session reading from a replica does not put what it reads into the second-level or query caches.
+     * @return the unit of work of the current thread, to be closed by the caller
+     * @throws HibernateException if no read connection can be borrowed or no session can be opened
+     */
+    public static UnitOfWork beginReadOnly() {
+        UnitOfWork work = current.get();
+        if (work == null) {
+            long startNanos = System.nanoTime();
+            Connection connection;
+            try {
+                connection = DatabaseUtils.getReadConnection();
+            } catch (DatabaseConnectionException e) {
+                throw new HibernateException("Could not borrow a read connection. " + e.getMessage(), e);
+            }
+            try {
+                boolean replica = DatabaseUtils.isReplicaConnection(connection);
+                Session session = DatabaseUtils.getSessionFactory().withOptions().connection(connection).openSession();
+                session.setDefaultReadOnly(true);
+                if (replica) {
+                    // rows of a lagging replica may predate a write already committed on the primary, so they are
+                    // read from the caches but never put into them
+                    session.setCacheMode(CacheMode.GET);
+                }
+                work = open(session, connection);
+            } catch (DatabaseConnectionException e) {
+                closeQuietly(connection);
+                throw new HibernateException("Could not inspect the read connection. " + e.getMessage(), e);
+            } catch (HibernateException e) {
+                closeQuietly(connection);
+                throw e;
+            }
+            sessionOpenTime.recordSince(startNanos);
+            current.set(work);
+        }
+        work.depth++;
+        return work;
+    }
+
+    /**
+     * Begins the transaction of a new session, closing the session if the transaction cannot begin
+     * @param session the new session
+     * @param readConnection the read connection the session was opened on, or null if the session borrows its own
+     * @return a unit of work around the session
+     */
+    private static UnitOfWork open(Session session, Connection readConnection) {
+        try {
+            return new UnitOfWork(session, session.beginTransaction(), readConnection);
+        } catch (HibernateException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a read connection to its pool
+     * @param connection the connection to close
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // the pool discards a connection it cannot take back, so there is nothing left to release
+        }
+    }
+
+    /**
+     * @return true if the current thread has a unit of work open
+     */
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * @return the time taken to open a session and begin its transaction
+     */
+    public static LatencyRecorder getSessionOpenTime() {
+        return sessionOpenTime;
+    }
+
+    /**
+     * @return the time taken to flush the changes of a unit of work to the database
+     */
+    public static LatencyRecorder getFlushTime() {
+        return flushTime;
+    }
+
+    /**
+     * @return true if this unit of work reads through a read connection and cannot write
+     */
+    public final boolean isReadOnly() {
+        return readConnection != null;
+    }
+
+    /**
+     * @return the session of this unit of work
+     */
+    public final Session getSession() {
+        return session;
+    }
+
+    /**
+     * Defers an action until the outermost handle of this unit commits; the action is discarded if the unit rolls back
+     * @param action the action to run after the commit
+     */
+    public final void afterCommit(Runnable action) {
+        commitActions.add(action);
+    }
+
+    /**
+     * Flushes the changes made so far, and commits them if this is the outermost handle of the unit.
+     * A joined handle leaves the commit to the outermost handle.
+     * @throws HibernateException if the changes cannot be flushed or committed
+     * @throws TransactionException if the outermost handle commits a unit marked for rollback
+     */
+    public final void commit() {
+        if (rollbackOnly) {
+            throw new TransactionException("Unit of work was marked for rollback");
+        }
+        long startNanos = System.nanoTime();
+        session.flush();
+        flushTime.recordSince(startNanos);
+        if (depth == 1) {
+            transaction.commit();
+            for (Runnable action : commitActions) {
+                action.run();
+            }
+            commitActions.clear();
+        }
+        committed = true;
+    }
+
+    /**
+     * Leaves the unit of work; the outermost handle rolls back unless it committed, then closes the session.
+     * A joined handle closed without committing marks the whole unit for rollback.
+     */
+    @Override
+    public final void close() {
+        if (!committed) {
+            rollbackOnly = true;
+        }
+        committed = false;
+        if (--depth > 0) {
+            return;
+        }
+        current.remove();
+        try {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        } finally {
+            session.close();
+            if (readConnection != null) {
+                closeQuietly(readConnection);
+            }
+        }
+    }
+}
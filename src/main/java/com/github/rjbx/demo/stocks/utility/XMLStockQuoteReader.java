@@ -0,0 +1,138 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.github.rjbx.demo.stocks.model.XMLStockQuote;
+import com.github.rjbx.demo.stocks.model.XMLStockQuoteList;
+import org.apache.http.annotation.NotThreadSafe;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pull-parses the {@code <stock>} elements of a stock feed one at a time, so that a feed of any size is read
+ * without holding more than the current element in memory. Each element is bound to an {@code XMLStockQuote}
+ * as it is reached; the rest of the document is skipped.
+ * A reader must be closed, preferably with try-with-resources, to release the stream it reads from.
+ * <pre>
+ * try (XMLStockQuoteReader reader = XMLUtils.openReader(xmlPath)) {
+ *     while (reader.next()) {
+ *         XMLStockQuote quote = reader.get();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * @author Bob Basmaji
+ */
+@NotThreadSafe
+public final class XMLStockQuoteReader implements AutoCloseable {
+    // fields of this class
+    private static final String STOCK_ELEMENT = "stock";
+    private static final XMLInputFactory inputFactory = createInputFactory();
+    private final InputStream inputStream;
+    private final XMLStreamReader streamReader;
+    private final Unmarshaller unmarshaller;
+    private XMLStockQuote current;
+    private boolean closed;
+
+    /**
+     * Constructs a new {@code XMLStockQuoteReader} instance which takes ownership of the stream
+     * @param inputStream the stream of the feed document, closed together with this reader
+     * @throws XMLUnmarshalException if the document cannot be opened for parsing
+     */
+    public XMLStockQuoteReader(InputStream inputStream) throws XMLUnmarshalException {
+        try {
+            this.streamReader = inputFactory.createXMLStreamReader(inputStream);
+            // the reader may be handed between threads, so it owns an unmarshaller of the shared context
+            this.unmarshaller = XMLUtils.getContext(XMLStockQuoteList.class).createUnmarshaller();
+        } catch (XMLStreamException | JAXBException e) {
+            closeQuietly(inputStream);
+            throw new XMLUnmarshalException(e.getMessage(), e);
+        }
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * Moves the reader to the next {@code <stock>} element
+     * @return true if the reader is positioned on a quote, false if the document is exhausted
+     * @throws XMLUnmarshalException if the document is malformed or the element cannot be bound
+     */
+    public final boolean next() throws XMLUnmarshalException {
+        current = null;
+        if (closed) {
+            return false;
+        }
+        try {
+            while (streamReader.hasNext()) {
+                if (streamReader.getEventType() == XMLStreamConstants.START_ELEMENT
+                        && STOCK_ELEMENT.equals(streamReader.getLocalName())) {
+                    // binding the element leaves the reader on the event following its end tag
+                    current = unmarshaller.unmarshal(streamReader, XMLStockQuote.class).getValue();
+                    return true;
+                }
+                streamReader.next();
+            }
+        } catch (XMLStreamException | JAXBException e) {
+            throw new XMLUnmarshalException("Could not read the next stock element. " + e.getMessage(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Gets the quote the reader is positioned on
+     * @return the current {@code XMLStockQuote}
+     * @throws IllegalStateException if {@link #next()} has not returned true
+     */
+    public final XMLStockQuote get() {
+        if (current == null) {
+            throw new IllegalStateException("Reader is not positioned on a quote");
+        }
+        return current;
+    }
+
+    /**
+     * Releases the parser and the stream it reads from; closing a closed reader has no effect
+     * @throws XMLUnmarshalException if the stream cannot be closed cleanly
+     */
+    @Override
+    public final void close() throws XMLUnmarshalException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        try {
+            streamReader.close();
+            inputStream.close();
+        } catch (XMLStreamException | IOException e) {
+            throw new XMLUnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates the factory of stream readers, which refuses DTDs and external entities since feeds come from outside
+     * @return a configured {@code XMLInputFactory}
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Closes a stream the reader failed to take ownership of
+     * @param inputStream the stream to close
+     */
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            // the original failure is the one reported to the caller
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.service.StockQuoteCursor;
+import org.apache.http.annotation.NotThreadSafe;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes quotes to a stream one {@code <stock>} element at a time in the format of stock_info.xsd, so that a range
+ * of any size is exported without holding more than the current quote in memory. The document is opened by the
+ * constructor and completed by {@link #close()}; a writer which failed leaves the document incomplete rather than
+ * closing it, so that a consumer cannot mistake a partial export for a whole one.
+ * The stream stays open, since it belongs to the caller.
+ * <pre>
+ * try (XMLStockQuoteWriter writer = new XMLStockQuoteWriter(outputStream)) {
+ *     writer.write(stockService.getQuoteCursor(symbol, startRange, endRange));
+ * }
+ * </pre>
+ * @author Bob Basmaji
+ */
+@NotThreadSafe
+public final class XMLStockQuoteWriter implements AutoCloseable {
+    // fields of this class
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String ENCODING = "UTF-8";
+    private static final String INDENT = "\n    ";
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private final OutputStream outputStream;
+    private final XMLStreamWriter streamWriter;
+    private long count;
+    private boolean failed;
+    private boolean closed;
+
+    /**
+     * Constructs a new {@code XMLStockQuoteWriter} instance and opens the document
+     * @param outputStream the stream to write the document to, which is flushed but not closed by this writer
+     * @throws XMLMarshalException if the document cannot be opened
+     */
+    public XMLStockQuoteWriter(OutputStream outputStream) throws XMLMarshalException {
+        this.outputStream = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        try {
+            this.streamWriter = outputFactory.createXMLStreamWriter(this.outputStream, ENCODING);
+            streamWriter.writeStartDocument(ENCODING, "1.0");
+            streamWriter.writeCharacters("\n");
+            streamWriter.writeStartElement("stocks");
+        } catch (XMLStreamException e) {
+            throw new XMLMarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes one quote as a {@code <stock>} element
+     * @param quote the quote to write
+     * @throws XMLMarshalException if the element cannot be written
+     */
+    public final void write(StockQuote quote) throws XMLMarshalException {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        try {
+            streamWriter.writeCharacters(INDENT);
+            streamWriter.writeEmptyElement("stock");
+            streamWriter.writeAttribute("symbol", quote.getSymbol());
+            streamWriter.writeAttribute("price", quote.getPrice().toPlainString());
+            streamWriter.writeAttribute("time", quote.getTime().toString(StockQuote.getDateFormatter()));
+            count++;
+        } catch (XMLStreamException e) {
+            failed = true;
+            throw new XMLMarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes every remaining quote of a cursor and closes the cursor
+     * @param quotes the cursor to read to its end
+     * @return the number of quotes written from the cursor
+     * @throws XMLMarshalException if an element cannot be written
+     * @throws StockServiceException if the cursor cannot be read
+     */
+    public final long write(StockQuoteCursor quotes) throws XMLMarshalException, StockServiceException {
+        long written = 0;
+        boolean completed = false;
+        try (StockQuoteCursor source = quotes) {
+            while (source.next()) {
+                write(source.get());
+                written++;
+            }
+            completed = true;
+        } finally {
+            // whatever stopped the cursor short of its end, checked or not, leaves the document incomplete
+            if (!completed) {
+                failed = true;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @return the number of quotes written so far
+     */
+    public final long getCount() {
+        return count;
+    }
+
+    /**
+     * Completes the document unless writing failed, then flushes the stream; closing a closed writer has no effect
+     * @throws XMLMarshalException if the document cannot be completed or the stream cannot be flushed
+     */
+    @Override
+    public final void close() throws XMLMarshalException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!failed) {
+                streamWriter.writeCharacters("\n");
+                streamWriter.writeEndElement();
+                streamWriter.writeCharacters("\n");
+                streamWriter.writeEndDocument();
+            }
+            streamWriter.flush();
+            streamWriter.close();
+            outputStream.flush();
+        } catch (XMLStreamException | IOException e) {
+            throw new XMLMarshalException(e.getMessage(), e);
+        }
+    }
+}
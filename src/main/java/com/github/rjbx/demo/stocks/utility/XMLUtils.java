@@ -1,7 +1,10 @@
 package com.github.rjbx.demo.stocks.utility;
 
 import com.github.rjbx.demo.stocks.model.XMLStockQuoteList;
+import com.github.rjbx.demo.stocks.service.StockQuoteCursor;
+import com.github.rjbx.demo.stocks.service.StockService;
 import org.dom4j.io.SAXContentHandler;
+import org.joda.time.DateTime;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -9,45 +12,156 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.transform.sax.SAXResult;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
 
 /**
  * A class that contains XML-related utility methods.
+ * Building a {@code JAXBContext} introspects every bound class, so one context is built per bound type and shared;
+ * marshallers and unmarshallers are cheap to create but not thread-safe, so each thread keeps its own per type.
  */
 public final class XMLUtils {
     // fields of this class
     public static final String xmlFilePath = "src/main/resources/xml/stock_info.xml";
+    private static final int FEED_BUFFER_SIZE = 64 * 1024;
+    private static final ConcurrentMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+    private static final ThreadLocal<Map<Class<?>, Marshaller>> marshallers = new ThreadLocal<Map<Class<?>, Marshaller>>() {
+        @Override
+        protected Map<Class<?>, Marshaller> initialValue() {
+            return new HashMap<Class<?>, Marshaller>();
+        }
+    };
+    private static final ThreadLocal<Map<Class<?>, Unmarshaller>> unmarshallers = new ThreadLocal<Map<Class<?>, Unmarshaller>>() {
+        @Override
+        protected Map<Class<?>, Unmarshaller> initialValue() {
+            return new HashMap<Class<?>, Unmarshaller>();
+        }
+    };
+
+    /**
+     * Gets the shared context of a bound type, building it on first use
+     * @param type the root class to bind
+     * @return the {@code JAXBContext} of the type, which is thread-safe
+     * @throws JAXBException if the type cannot be bound
+     */
+    public static final JAXBContext getContext(Class<?> type) throws JAXBException {
+        JAXBContext context = contexts.get(type);
+        if (context == null) {
+            // builds each context once even when several threads ask for it together
+            synchronized (contexts) {
+                context = contexts.get(type);
+                if (context == null) {
+                    context = JAXBContext.newInstance(type);
+                    contexts.put(type, context);
+                }
+            }
+        }
+        return context;
+    }
 
     /**
-     * Unmarshals XML data into XML domain object XMLStockQuoteLIst
+     * Gets the marshaller of a bound type kept by the current thread, which writes formatted output.
+     * The marshaller must not be handed to another thread.
+     * @param type the root class to bind
+     * @return a {@code Marshaller} of the shared context of the type
+     * @throws JAXBException if the type cannot be bound
+     */
+    public static final Marshaller getMarshaller(Class<?> type) throws JAXBException {
+        Map<Class<?>, Marshaller> cache = marshallers.get();
+        Marshaller marshaller = cache.get(type);
+        if (marshaller == null) {
+            marshaller = getContext(type).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            cache.put(type, marshaller);
+        }
+        return marshaller;
+    }
+
+    /**
+     * Gets the unmarshaller of a bound type kept by the current thread.
+     * The unmarshaller must not be handed to another thread.
+     * @param type the root class to bind
+     * @return an {@code Unmarshaller} of the shared context of the type
+     * @throws JAXBException if the type cannot be bound
+     */
+    public static final Unmarshaller getUnmarshaller(Class<?> type) throws JAXBException {
+        Map<Class<?>, Unmarshaller> cache = unmarshallers.get();
+        Unmarshaller unmarshaller = cache.get(type);
+        if (unmarshaller == null) {
+            unmarshaller = getContext(type).createUnmarshaller();
+            cache.put(type, unmarshaller);
+        }
+        return unmarshaller;
+    }
+
+    /**
+     * Opens a feed file for reading one {@code <stock>} element at a time, in memory independent of the size of the file.
+     * Gzip-compressed feeds are decompressed as they are read.
+     * @param xmlPath String containing a reference to the file containing XML data, compressed or not
+     * @return an {@code XMLStockQuoteReader} positioned before the first quote, to be closed by the caller
+     * @throws XMLUnmarshalException if the file cannot be opened
+     */
+    public static final XMLStockQuoteReader openReader(String xmlPath) throws XMLUnmarshalException {
+        try {
+            return new XMLStockQuoteReader(openFeed(xmlPath));
+        } catch (IOException e) {
+            throw new XMLUnmarshalException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens a feed file as a stream of bytes read from its channel in large blocks, so that the parser decodes the bytes
+     * directly instead of the file being copied into lines first. A file starting with the gzip magic number is
+     * decompressed as it is read, whatever its name, so archived feeds are read without being expanded to disk.
+     * @param path String containing a reference to the file, compressed or not
+     * @return an {@code InputStream} of the uncompressed feed, to be closed by the caller
+     * @throws IOException if the file cannot be opened or its gzip header is invalid
+     */
+    public static final InputStream openFeed(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            InputStream inputStream = new BufferedInputStream(Channels.newInputStream(channel), FEED_BUFFER_SIZE);
+            inputStream.mark(2);
+            int first = inputStream.read();
+            int second = inputStream.read();
+            inputStream.reset();
+            if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+                inputStream = new GZIPInputStream(inputStream, FEED_BUFFER_SIZE);
+            }
+            return inputStream;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Unmarshals XML data into XML domain object XMLStockQuoteLIst.
+     * Every quote of the file is held in memory; feeds of unbounded size should be read with {@link #openReader(String)}.
      * @param xmlPath String containing a reference to the file containing XML data
      * @return XMLStockQuoteList
      * @throws XMLUnmarshalException
      */
     public static final XMLStockQuoteList unmarshal(String xmlPath) throws XMLUnmarshalException {
-        XMLStockQuoteList quotes = null;
-        try {
-            boolean eof = false;
-            StringBuilder xmlInstance = new StringBuilder();
-            BufferedReader reader = new BufferedReader(new FileReader(xmlPath));
-            while (!eof) {
-                String line = reader.readLine();
-                if (line == null) {
-                    eof = true;
-                } else {
-                    xmlInstance.append(line);
-                }
+        XMLStockQuoteList quotes = new XMLStockQuoteList();
+        try (XMLStockQuoteReader reader = openReader(xmlPath)) {
+            while (reader.next()) {
+                quotes.getStock().add(reader.get());
             }
-            JAXBContext jaxbContext = JAXBContext.newInstance(XMLStockQuoteList.class);
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            quotes = (XMLStockQuoteList) unmarshaller.unmarshal(new StringReader(xmlInstance.toString()));
-        } catch (IOException | JAXBException e) {
-            throw new XMLUnmarshalException(e.getMessage());
         }
         return quotes;
     }
 
     /**
-     * Marshals XML domain object XMLStockQuoteList into XML data
+     * Marshals XML domain object XMLStockQuoteList into XML data.
+     * Every quote is held in memory; ranges of unbounded size should be written with {@link #export(StockQuoteCursor, OutputStream)}.
      * @param quotes list of quotes in the format of an XML domain object
      * @return SAXResult
      * @throws XMLMarshalException
@@ -56,9 +170,7 @@ public final class XMLUtils {
         // here is how to go from Java to XML
         SAXResult result = null;
         try {
-            JAXBContext context = JAXBContext.newInstance(XMLStockQuoteList.class);
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            Marshaller marshaller = getMarshaller(XMLStockQuoteList.class);
             result = new SAXResult(new SAXContentHandler());
             marshaller.marshal(quotes, result);
         } catch (JAXBException e) {
@@ -66,4 +178,37 @@ public final class XMLUtils {
         }
         return result;
     }
+
+    /**
+     * Exports the quotes of a cursor to a stream as a stock_info.xsd document, one element at a time,
+     * in memory independent of the number of quotes
+     * @param quotes the cursor to read to its end and close, which is closed as well if the document cannot be opened
+     * @param outputStream the stream to write the document to, which is flushed but not closed
+     * @return the number of quotes exported
+     * @throws XMLMarshalException if the document cannot be written; it is left incomplete
+     * @throws StockServiceException if the cursor cannot be read; the document is left incomplete
+     */
+    public static final long export(StockQuoteCursor quotes, OutputStream outputStream) throws XMLMarshalException, StockServiceException {
+        try (StockQuoteCursor source = quotes;
+             XMLStockQuoteWriter writer = new XMLStockQuoteWriter(outputStream)) {
+            return writer.write(source);
+        }
+    }
+
+    /**
+     * Exports the quotes of a symbol in a date range, read through the cursor of the given service,
+     * to a stream as a stock_info.xsd document
+     * @param stockService the service to read the quotes from
+     * @param symbol symbol for the company issuing the stock
+     * @param startRange beginning of the date range
+     * @param endRange end of the date range
+     * @param outputStream the stream to write the document to, which is flushed but not closed
+     * @return the number of quotes exported
+     * @throws XMLMarshalException if the document cannot be written; it is left incomplete
+     * @throws StockServiceException if the quotes cannot be read; the document is left incomplete
+     */
+    public static final long export(StockService stockService, String symbol, DateTime startRange, DateTime endRange,
+                                    OutputStream outputStream) throws XMLMarshalException, StockServiceException {
+        return export(stockService.getQuoteCursor(symbol, startRange, endRange), outputStream);
+    }
 }
@@ -0,0 +1,2 @@
+-- lets range and latest-quote reads of a symbol be answered from the index alone, without reading table rows
+CREATE INDEX quotes_symbol_time_price ON quotes (symbol_id, time, price);
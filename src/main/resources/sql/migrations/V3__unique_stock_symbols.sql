@@ -0,0 +1,11 @@
+-- points quotes and holdings of a symbol stored more than once at its lowest id, then removes the other rows;
+-- quotes.time is assigned to itself so that MySQL does not stamp the first TIMESTAMP column with the update time
+UPDATE quotes SET time = time, symbol_id = (SELECT MIN(duplicate.id) FROM stock_symbols original
+    JOIN stock_symbols duplicate ON duplicate.symbol = original.symbol WHERE original.id = quotes.symbol_id)
+    WHERE symbol_id IN (SELECT id FROM stock_symbols WHERE id NOT IN (SELECT MIN(id) FROM stock_symbols GROUP BY symbol));
+UPDATE person_stocks SET symbol_id = (SELECT MIN(duplicate.id) FROM stock_symbols original
+    JOIN stock_symbols duplicate ON duplicate.symbol = original.symbol WHERE original.id = person_stocks.symbol_id)
+    WHERE symbol_id IN (SELECT id FROM stock_symbols WHERE id NOT IN (SELECT MIN(id) FROM stock_symbols GROUP BY symbol));
+DELETE FROM stock_symbols WHERE id NOT IN (SELECT id FROM (SELECT MIN(id) AS id FROM stock_symbols GROUP BY symbol) kept);
+
+ALTER TABLE stock_symbols ADD CONSTRAINT stock_symbols_symbol UNIQUE (symbol);
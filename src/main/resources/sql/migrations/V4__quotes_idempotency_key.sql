@@ -0,0 +1,5 @@
+-- a symbol has at most one quote per time, so storing the same quote again updates it instead of adding a row;
+-- the last row written for a time is kept
+DELETE FROM quotes WHERE id NOT IN (SELECT id FROM (SELECT MAX(id) AS id FROM quotes GROUP BY symbol_id, time) kept);
+
+ALTER TABLE quotes ADD CONSTRAINT quotes_symbol_id_time UNIQUE (symbol_id, time);
@@ -0,0 +1,12 @@
+-- ids are reserved in blocks from this table by Hibernate and by the JDBC bulk paths alike, so that inserts
+-- carry their ids and can be batched; each row holds the next id not yet reserved for its table
+CREATE TABLE id_generators(
+   name VARCHAR(64) NOT NULL,
+   next_val INT NOT NULL,
+   PRIMARY KEY (name)
+);
+
+INSERT INTO id_generators (name, next_val) SELECT 'stock_symbols', COALESCE(MAX(id), 0) + 1 FROM stock_symbols;
+INSERT INTO id_generators (name, next_val) SELECT 'quotes', COALESCE(MAX(id), 0) + 1 FROM quotes;
+INSERT INTO id_generators (name, next_val) SELECT 'people', COALESCE(MAX(id), 0) + 1 FROM people;
+INSERT INTO id_generators (name, next_val) SELECT 'person_stocks', COALESCE(MAX(id), 0) + 1 FROM person_stocks;
@@ -0,0 +1,9 @@
+-- the connection router stamps the current time into this row on the primary; the stamp a replica has received
+-- so far tells how far it lags behind, so that reads are only routed to replicas within the lag tolerance
+CREATE TABLE replication_heartbeat(
+   id INT NOT NULL,
+   beat_millis BIGINT NOT NULL,
+   PRIMARY KEY (id)
+);
+
+INSERT INTO replication_heartbeat (id, beat_millis) VALUES (1, 0);
@@ -0,0 +1,74 @@
+package com.github.rjbx.demo.stocks.benchmark;
+
+import com.github.rjbx.demo.stocks.model.DatabaseStockQuote;
+import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
+import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.IngestStatistics;
+import com.github.rjbx.demo.stocks.utility.UnitOfWork;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+
+/**
+ * Compares the throughput of saving quote entities through Hibernate with a flush after every entity,
+ * which sends one insert per round trip as identity ids force, with flushing once per JDBC batch,
+ * which the pooled ids of the entities allow.
+ * Run with the test classpath, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.github.rjbx.demo.stocks.benchmark.HibernateInsertBenchmark -Dexec.args="20000 50"}.
+ * @author Bob Basmaji
+ */
+public final class HibernateInsertBenchmark {
+    // fields of this class
+    private static final DateTime FIRST_QUOTE = new DateTime(2016, 8, 1, 9, 30);
+
+    /**
+     * Hides the constructor because this class contains only static methods
+     */
+    private HibernateInsertBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args the number of quotes saved by each run, then the flush interval of the batched run,
+     * which should match "hibernate.jdbc.batch_size"; default 20000 and 50
+     * @throws Exception if the database cannot be prepared or written
+     */
+    public static void main(String[] args) throws Exception {
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+
+        IngestStatistics perRow = save("ROWS", rowCount, 1);
+        IngestStatistics batched = save("BTCH", rowCount, batchSize);
+
+        System.out.println("flush per row    " + perRow);
+        System.out.println("flush per batch  " + batched);
+        System.out.printf("speedup          %.1fx%n", batched.getRowsPerSecond() / perRow.getRowsPerSecond());
+    }
+
+    /**
+     * Saves one quote per minute for a new symbol in a single unit of work
+     * @param symbol the symbol of the quotes
+     * @param count the number of quotes
+     * @param flushInterval the number of quotes saved between flushes
+     * @return the number of quotes saved and the throughput of the run
+     */
+    private static IngestStatistics save(String symbol, int count, int flushInterval) {
+        long startNanos = System.nanoTime();
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            DatabaseStockSymbol stockSymbol = new DatabaseStockSymbol(symbol);
+            work.getSession().save(stockSymbol);
+            for (int i = 0; i < count; i++) {
+                work.getSession().save(new DatabaseStockQuote(FIRST_QUOTE.plusMinutes(i), BigDecimal.valueOf(10000 + (i * 7919L) % 90000, 2), stockSymbol));
+                if ((i + 1) % flushInterval == 0) {
+                    // releases the saved quotes so that the session does not grow with the run
+                    work.getSession().flush();
+                    work.getSession().clear();
+                    work.getSession().update(stockSymbol);
+                }
+            }
+            work.commit();
+        }
+        return new IngestStatistics(count, (count + flushInterval - 1) / flushInterval, System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.rjbx.demo.stocks.benchmark;
+
+import com.github.rjbx.demo.stocks.model.XMLStockQuoteList;
+import com.github.rjbx.demo.stocks.utility.XMLUtils;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+/**
+ * Measures the cost of one unmarshal and marshal round trip of a two-quote document, like the one in {@code StockTicker},
+ * when the context is built for every call, when a shared context creates new marshallers for every call,
+ * and when the marshallers kept per thread by {@code XMLUtils} are reused.
+ * Run with the test classpath, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.github.rjbx.demo.stocks.benchmark.JAXBBindingBenchmark}.
+ * @author Bob Basmaji
+ */
+public final class JAXBBindingBenchmark {
+    // fields of this class
+    private static final String XML_INSTANCE = "<stocks>\n"
+            + "    <stock symbol=\"VNET\" price=\"110.10\" time=\"2015-02-10 00:00:01\"/>\n"
+            + "    <stock symbol=\"AGTK\" price=\"120.10\" time=\"2015-02-10 00:00:01\"/>\n"
+            + "</stocks>";
+    private static final int WARMUP_CALLS = 200;
+
+    /**
+     * Hides the constructor because this class contains only static methods
+     */
+    private JAXBBindingBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args the number of measured calls per variant; defaults to 2000
+     * @throws JAXBException if the document cannot be bound
+     */
+    public static void main(String[] args) throws JAXBException {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        System.out.printf("%-24s %12s%n", "variant", "us per call");
+        for (Variant variant : Variant.values()) {
+            for (int i = 0; i < WARMUP_CALLS; i++) {
+                variant.roundTrip();
+            }
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                variant.roundTrip();
+            }
+            System.out.printf("%-24s %12.1f%n", variant, (System.nanoTime() - startNanos) / 1000.0 / calls);
+        }
+    }
+
+    /**
+     * The ways of obtaining a context and its marshallers that are compared
+     */
+    private enum Variant {
+        NEW_CONTEXT_PER_CALL {
+            @Override
+            void roundTrip() throws JAXBException {
+                JAXBContext context = JAXBContext.newInstance(XMLStockQuoteList.class);
+                Marshaller marshaller = context.createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+                run(context.createUnmarshaller(), marshaller);
+            }
+        },
+        SHARED_CONTEXT {
+            @Override
+            void roundTrip() throws JAXBException {
+                JAXBContext context = XMLUtils.getContext(XMLStockQuoteList.class);
+                Marshaller marshaller = context.createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+                run(context.createUnmarshaller(), marshaller);
+            }
+        },
+        THREAD_LOCAL_MARSHALLERS {
+            @Override
+            void roundTrip() throws JAXBException {
+                run(XMLUtils.getUnmarshaller(XMLStockQuoteList.class), XMLUtils.getMarshaller(XMLStockQuoteList.class));
+            }
+        };
+
+        /**
+         * Unmarshals and marshals the document once with the marshallers this variant obtains
+         * @throws JAXBException
+         */
+        abstract void roundTrip() throws JAXBException;
+
+        /**
+         * @param unmarshaller the unmarshaller to read the document with
+         * @param marshaller the marshaller to write it back with
+         * @throws JAXBException
+         */
+        private static void run(Unmarshaller unmarshaller, Marshaller marshaller) throws JAXBException {
+            XMLStockQuoteList quotes = (XMLStockQuoteList) unmarshaller.unmarshal(new StringReader(XML_INSTANCE));
+            marshaller.marshal(quotes, new StringWriter());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.rjbx.demo.stocks.benchmark;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.service.DatabaseStockService;
+import com.github.rjbx.demo.stocks.service.PipelinedQuoteIngester;
+import com.github.rjbx.demo.stocks.service.ServiceFactory;
+import com.github.rjbx.demo.stocks.service.ServiceType;
+import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.IngestStatistics;
+import com.github.rjbx.demo.stocks.utility.PipelineStatistics;
+import org.joda.time.DateTime;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares the throughput of importing a generated feed with {@code DatabaseUtils.persistXMLData}, which parses and
+ * writes on one thread, with {@code PipelinedQuoteIngester} at several numbers of writers.
+ * The database is re-initialized before each import, so that every import inserts the same rows.
+ * Run with the test classpath, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.github.rjbx.demo.stocks.benchmark.PipelinedIngestBenchmark -Dexec.args="500000 1 2 4"}.
+ * @author Bob Basmaji
+ */
+public final class PipelinedIngestBenchmark {
+    // fields of this class
+    private static final int SYMBOLS = 64;
+    private static final int BATCH_SIZE = 1000;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final DateTime FIRST_QUOTE = new DateTime(2000, 1, 3, 9, 30);
+
+    /**
+     * Hides the constructor because this class contains only static methods
+     */
+    private PipelinedIngestBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args the number of quotes in the feed, then the numbers of writers to measure; default 200000, 1, 2 and 4
+     * @throws Exception if the feed cannot be written or imported
+     */
+    public static void main(String[] args) throws Exception {
+        int quoteCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int[] writerCounts = {1, 2, 4};
+        if (args.length > 1) {
+            writerCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                writerCounts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        File feed = writeFeed(quoteCount);
+        try {
+            DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+            IngestStatistics sequential = DatabaseUtils.persistXMLData(feed.getPath());
+            System.out.println("sequential  " + sequential);
+            DatabaseStockService service = (DatabaseStockService) ServiceFactory.createStockService(ServiceType.DATABASE);
+            for (int writers : writerCounts) {
+                DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+                PipelineStatistics pipelined = new PipelinedQuoteIngester(service, writers, BATCH_SIZE, QUEUE_CAPACITY).ingest(feed.getPath());
+                System.out.printf("%d writer(s) %s%n", writers, pipelined);
+                System.out.printf("speedup     %.1fx%n", pipelined.getWritten().getRowsPerSecond() / sequential.getRowsPerSecond());
+            }
+        } finally {
+            feed.delete();
+        }
+    }
+
+    /**
+     * Writes a feed of one quote per minute for each of {@code SYMBOLS} symbols, interleaved as an end-of-day feed would be
+     * @param quoteCount the number of quotes in the feed
+     * @return the feed file
+     * @throws Exception
+     */
+    private static File writeFeed(int quoteCount) throws Exception {
+        File feed = File.createTempFile("benchmark-feed", ".xml");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(feed), StandardCharsets.UTF_8))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<stocks>\n");
+            for (int i = 0; i < quoteCount; i++) {
+                int symbolIndex = i % SYMBOLS;
+                String time = FIRST_QUOTE.plusMinutes(i / SYMBOLS).toString(StockQuote.getDateFormatter());
+                writer.write("    <stock symbol=\"Y" + (char) ('A' + symbolIndex / 26) + (char) ('A' + symbolIndex % 26)
+                        + "\" price=\"" + BigDecimal.valueOf(10000 + (i * 7919L) % 90000, 2) + "\" time=\"" + time + "\"/>\n");
+            }
+            writer.write("</stocks>\n");
+        }
+        return feed;
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.rjbx.demo.stocks.benchmark;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.service.StockQuoteCursor;
+import com.github.rjbx.demo.stocks.utility.XMLUtils;
+import org.joda.time.DateTime;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+/**
+ * Compares the throughput of exporting a range with {@code XMLUtils.export} with the speed of writing the same number
+ * of bytes to the same disk, which bounds what any export can reach.
+ * The quotes are generated as they are read, so that neither the database nor memory limits the measurement.
+ * Run with the test classpath, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.github.rjbx.demo.stocks.benchmark.QuoteExportBenchmark -Dexec.args="2000000"}.
+ * @author Bob Basmaji
+ */
+public final class QuoteExportBenchmark {
+    // fields of this class
+    private static final int ROUNDS = 3;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final DateTime FIRST_QUOTE = new DateTime(2000, 1, 3, 9, 30);
+
+    /**
+     * Hides the constructor because this class contains only static methods
+     */
+    private QuoteExportBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args the number of quotes in the range; default 1000000
+     * @throws Exception if the export or the raw write fails
+     */
+    public static void main(String[] args) throws Exception {
+        int quoteCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        File file = File.createTempFile("benchmark-export", ".xml");
+        try {
+            for (int round = 1; round <= ROUNDS; round++) {
+                long startNanos = System.nanoTime();
+                try (OutputStream outputStream = new FileOutputStream(file)) {
+                    XMLUtils.export(new GeneratedCursor(quoteCount), outputStream);
+                    outputStream.flush();
+                }
+                long exportNanos = System.nanoTime() - startNanos;
+                long bytes = file.length();
+                startNanos = System.nanoTime();
+                try (OutputStream outputStream = new FileOutputStream(file)) {
+                    byte[] block = new byte[BLOCK_SIZE];
+                    for (long written = 0; written < bytes; written += BLOCK_SIZE) {
+                        outputStream.write(block, 0, (int) Math.min(BLOCK_SIZE, bytes - written));
+                    }
+                }
+                long rawNanos = System.nanoTime() - startNanos;
+                System.out.printf("round %d  export %,.0f rows/s %.1f MB/s  raw write %.1f MB/s  (%.0f%% of disk speed)%n",
+                        round, quoteCount * 1e9 / exportNanos, bytes * 1e3 / exportNanos, bytes * 1e3 / rawNanos,
+                        100.0 * rawNanos / exportNanos);
+            }
+            System.out.printf("heap in use after export %.1f MB%n",
+                    (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / 1e6);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * A range of one quote per minute of a single symbol, created as the cursor advances
+     */
+    private static final class GeneratedCursor implements StockQuoteCursor {
+        private final int quoteCount;
+        private int position;
+        private StockQuote current;
+
+        private GeneratedCursor(int quoteCount) {
+            this.quoteCount = quoteCount;
+        }
+
+        @Override
+        public boolean next() {
+            if (position == quoteCount) {
+                current = null;
+                return false;
+            }
+            current = new StockQuote(FIRST_QUOTE.plusMinutes(position), BigDecimal.valueOf(10000 + (position * 7919L) % 90000, 2), "YAA");
+            position++;
+            return true;
+        }
+
+        @Override
+        public StockQuote get() {
+            return current;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
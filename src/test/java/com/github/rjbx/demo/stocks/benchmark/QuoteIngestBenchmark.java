@@ -0,0 +1,69 @@
+package com.github.rjbx.demo.stocks.benchmark;
+
+import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.service.DatabaseStockService;
+import com.github.rjbx.demo.stocks.service.ServiceFactory;
+import com.github.rjbx.demo.stocks.service.ServiceType;
+import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.IngestStatistics;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the throughput of storing quotes one at a time through {@code addOrUpdateQuote}
+ * with storing them in batches through {@code addQuotes}.
+ * Run with the test classpath, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.github.rjbx.demo.stocks.benchmark.QuoteIngestBenchmark -Dexec.args="2000 100000"}.
+ * @author Bob Basmaji
+ */
+public final class QuoteIngestBenchmark {
+    // fields of this class
+    private static final DateTime FIRST_QUOTE = new DateTime(2016, 8, 1, 9, 30);
+
+    /**
+     * Hides the constructor because this class contains only static methods
+     */
+    private QuoteIngestBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args the number of quotes stored one at a time, then the number stored in batches; default 2000 and 100000
+     * @throws Exception if the database cannot be prepared or written
+     */
+    public static void main(String[] args) throws Exception {
+        int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int bulkCount = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+        DatabaseStockService service = (DatabaseStockService) ServiceFactory.createStockService(ServiceType.DATABASE);
+
+        long startNanos = System.nanoTime();
+        for (StockQuote quote : generate("ROWS", rowCount)) {
+            service.addOrUpdateQuote(quote.getTime(), quote.getPrice(), new DatabaseStockSymbol(quote.getSymbol()));
+        }
+        IngestStatistics perRow = new IngestStatistics(rowCount, rowCount, System.nanoTime() - startNanos);
+        IngestStatistics bulk = service.addQuotes(generate("BULK", bulkCount));
+
+        System.out.println("addOrUpdateQuote " + perRow);
+        System.out.println("addQuotes        " + bulk);
+        System.out.printf("speedup          %.1fx%n", bulk.getRowsPerSecond() / perRow.getRowsPerSecond());
+    }
+
+    /**
+     * Generates one quote per minute for a symbol
+     * @param symbol the symbol of the quotes
+     * @param count the number of quotes
+     * @return the quotes in time order
+     */
+    private static List<StockQuote> generate(String symbol, int count) {
+        List<StockQuote> quotes = new ArrayList<StockQuote>(count);
+        for (int i = 0; i < count; i++) {
+            quotes.add(new StockQuote(FIRST_QUOTE.plusMinutes(i), BigDecimal.valueOf(10000 + (i * 7919L) % 90000, 2), symbol));
+        }
+        return quotes;
+    }
+}
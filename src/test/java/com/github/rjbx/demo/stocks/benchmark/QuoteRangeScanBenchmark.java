@@ -0,0 +1,161 @@
+package com.github.rjbx.demo.stocks.benchmark;
+
+import com.github.rjbx.demo.stocks.service.DatabaseStockService;
+import com.github.rjbx.demo.stocks.service.ServiceFactory;
+import com.github.rjbx.demo.stocks.service.ServiceType;
+import com.github.rjbx.demo.stocks.service.StockQuoteCursor;
+import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.IdAllocator;
+import com.github.rjbx.demo.stocks.utility.LatencyRecorder;
+import com.github.rjbx.demo.stocks.utility.SymbolDictionary;
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+
+/**
+ * Measures the latency of a one-day range scan of a single symbol as the quotes table grows.
+ * The database is re-initialized, so the migrated schema is measured, and then filled with one quote per minute
+ * for each of {@code SYMBOLS} symbols, in steps up to each table size given as an argument (10^4 to 10^7 rows by default).
+ * A scan reads the same number of rows at every size, so its latency should stay flat while the indexes are in place.
+ * Ids are drawn from {@code IdAllocator}, as every insert of the application does, so that the "id_generators" table
+ * stays ahead of the rows the benchmark leaves behind.
+ * Run with the test classpath, e.g. {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.github.rjbx.demo.stocks.benchmark.QuoteRangeScanBenchmark}.
+ * @author Bob Basmaji
+ */
+public final class QuoteRangeScanBenchmark {
+    // fields of this class
+    private static final int SYMBOLS = 100;
+    private static final int BATCH_SIZE = 5000;
+    private static final int WARMUP_SCANS = 20;
+    private static final int MEASURED_SCANS = 200;
+    private static final DateTime FIRST_QUOTE = new DateTime(2000, 1, 3, 9, 30);
+    private static final String SYMBOLS_TABLE = "stock_symbols";
+    private static final String QUOTES_TABLE = "quotes";
+    private static final String INSERT_SYMBOL = "insert into stock_symbols (id, symbol) values (?, ?)";
+    private static final String INSERT_QUOTE = "insert into quotes (id, symbol_id, time, price) values (?, ?, ?, ?)";
+
+    /**
+     * Hides the constructor because this class contains only static methods
+     */
+    private QuoteRangeScanBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark
+     * @param args table sizes to measure, in ascending order; defaults to 10^4, 10^5, 10^6 and 10^7 rows
+     * @throws Exception if the database cannot be prepared or scanned
+     */
+    public static void main(String[] args) throws Exception {
+        long[] sizes = {10000L, 100000L, 1000000L, 10000000L};
+        if (args.length > 0) {
+            sizes = new long[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Long.parseLong(args[i]);
+            }
+        }
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+        DatabaseStockService service = (DatabaseStockService) ServiceFactory.createStockService(ServiceType.DATABASE);
+        String[] symbols = createSymbols();
+        System.out.printf("%12s %10s %10s %10s%n", "rows", "scanned", "mean ms", "max ms");
+        long rows = 0;
+        for (long size : sizes) {
+            rows = fill(rows, size);
+            long minutesPerSymbol = rows / SYMBOLS;
+            // scans one day in the middle of the history of a symbol
+            DateTime start = FIRST_QUOTE.plusMinutes((int) Math.max(0, minutesPerSymbol / 2 - 720));
+            DateTime end = start.plusDays(1);
+            LatencyRecorder recorder = new LatencyRecorder("scan-" + size);
+            int scanned = 0;
+            for (int i = 0; i < WARMUP_SCANS + MEASURED_SCANS; i++) {
+                long startNanos = System.nanoTime();
+                scanned = scan(service, symbols[i % SYMBOLS], start, end);
+                if (i >= WARMUP_SCANS) {
+                    recorder.recordSince(startNanos);
+                }
+            }
+            System.out.printf("%12d %10d %10.3f %10.3f%n", rows, scanned, recorder.getMeanMillis(), recorder.getMaxMillis());
+        }
+    }
+
+    /**
+     * Stores the benchmark symbols
+     * @return the stored symbols
+     * @throws Exception
+     */
+    private static String[] createSymbols() throws Exception {
+        String[] symbols = new String[SYMBOLS];
+        try (Connection connection = DatabaseUtils.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_SYMBOL)) {
+            for (int i = 0; i < SYMBOLS; i++) {
+                symbols[i] = symbolAt(i);
+                statement.setInt(1, IdAllocator.INSTANCE.next(SYMBOLS_TABLE));
+                statement.setString(2, symbols[i]);
+                statement.executeUpdate();
+            }
+            SymbolDictionary.INSTANCE.load(connection);
+        }
+        return symbols;
+    }
+
+    /**
+     * @param index the index of a benchmark symbol
+     * @return four letters, as the symbol column allows, starting with Z to stay clear of the seeded symbols
+     */
+    private static String symbolAt(int index) {
+        return "Z" + (char) ('A' + index / 676 % 26) + (char) ('A' + index / 26 % 26) + (char) ('A' + index % 26);
+    }
+
+    /**
+     * Adds quotes, one per minute for each symbol, until the table holds the target number of benchmark rows
+     * @param rows the number of benchmark rows already stored
+     * @param target the number of benchmark rows to store
+     * @return the number of benchmark rows stored
+     * @throws Exception
+     */
+    private static long fill(long rows, long target) throws Exception {
+        try (Connection connection = DatabaseUtils.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_QUOTE)) {
+            connection.setAutoCommit(false);
+            for (; rows < target; rows++) {
+                int symbolIndex = (int) (rows % SYMBOLS);
+                long minute = rows / SYMBOLS;
+                statement.setInt(1, IdAllocator.INSTANCE.next(QUOTES_TABLE));
+                statement.setInt(2, SymbolDictionary.INSTANCE.lookup(symbolAt(symbolIndex)));
+                statement.setTimestamp(3, new Timestamp(FIRST_QUOTE.plusMinutes((int) minute).getMillis()));
+                statement.setBigDecimal(4, BigDecimal.valueOf(10000 + (rows * 7919) % 90000, 2));
+                statement.addBatch();
+                if ((rows + 1) % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+        return rows;
+    }
+
+    /**
+     * Reads every quote of a symbol in a range through a cursor
+     * @param service the service to scan with
+     * @param symbol the symbol to scan
+     * @param start beginning of the range
+     * @param end end of the range
+     * @return the number of quotes read
+     * @throws Exception
+     */
+    private static int scan(DatabaseStockService service, String symbol, DateTime start, DateTime end) throws Exception {
+        int count = 0;
+        try (StockQuoteCursor cursor = service.getQuoteCursor(symbol, start, end)) {
+            while (cursor.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.rjbx.demo.stocks.model;
+
+import com.github.rjbx.demo.stocks.utility.HoursInterval;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the StockQuoteBar class.
+ * @author Bob Basmaji
+ */
+public final class StockQuoteBarTest {
+    // fields of this class
+    private static final String symbol = "AAPL";
+    private DateTime startRange;
+    private List<StockQuote> quotes;
+
+    /**
+     * Sets up logic common to each test
+     */
+    @Before
+    public final void setUp() {
+        // two quotes on the first day, none on the second and one on the third
+        startRange = new DateTime(2016, 6, 9, 0, 0);
+        quotes = new ArrayList<StockQuote>();
+        quotes.add(new StockQuote(startRange.plusHours(9), new BigDecimal("99.65"), symbol));
+        quotes.add(new StockQuote(startRange.plusHours(17), new BigDecimal("98.83"), symbol));
+        quotes.add(new StockQuote(startRange.plusDays(2).plusHours(9), new BigDecimal("97.34"), symbol));
+    }
+
+    /**
+     * Verifies that a RuntimeException is thrown when a StockQuoteBar object is improperly constructed
+     */
+    @Test(expected = RuntimeException.class)
+    public final void testStockQuoteBarConstruction() {
+        new StockQuoteBar(startRange, null, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, 1, symbol);
+    }
+
+    /**
+     * Verifies that fromQuotes summarizes the open, high, low, close and count of each interval
+     */
+    @Test
+    public final void testFromQuotesPositive() {
+        List<StockQuoteBar> bars = StockQuoteBar.fromQuotes(quotes, startRange, HoursInterval.DAY);
+        StockQuoteBar first = bars.get(0);
+        assertTrue("first bar does not summarize the quotes of the first day",
+                first.getTime().equals(startRange) && first.getOpenTime().equals(startRange.plusHours(9)) && first.getCount() == 2
+                        && first.getOpen().equals(new BigDecimal("99.65")) && first.getClose().equals(new BigDecimal("98.83"))
+                        && first.getHigh().equals(new BigDecimal("99.65")) && first.getLow().equals(new BigDecimal("98.83")));
+        assertTrue("last bar does not begin at the start of its interval", bars.get(1).getTime().equals(startRange.plusDays(2)));
+    }
+
+    /**
+     * Verifies that fromQuotes produces no bar for an interval without quotes
+     */
+    @Test
+    public final void testFromQuotesNegative() {
+        List<StockQuoteBar> bars = StockQuoteBar.fromQuotes(quotes, startRange, HoursInterval.DAY);
+        assertFalse("fromQuotes produces a bar for an interval without quotes", bars.size() != 2);
+    }
+}
@@ -8,6 +8,10 @@ import org.apache.http.annotation.Immutable;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -148,4 +152,50 @@ public final class BasicStockServiceTest {
         assertFalse("Date recorded returned from first element of list returned by getQuote equals the date of the parameter value of the end date",
                 basicStockService.getQuote(symbol, startRange, endRange, interval).get(0).getTime().toString(StockQuote.DATE_PATTERN).equals(endRange.toString(StockQuote.DATE_PATTERN)));
     }
+
+    /**
+     * Verifies that the cursor generates one quote per day of the range, beginning at the start of the range
+     */
+    @Test
+    public final void testGetQuoteCursorPositive() {
+        int count = 0;
+        boolean ordered = true;
+        DateTime expected = startRange;
+        try (BasicStockService.GeneratedQuoteCursor cursor = basicStockService.getQuoteCursor(symbol, startRange, endRange)) {
+            while (cursor.next()) {
+                ordered &= cursor.get().getTime().toString(StockQuote.DATE_PATTERN).equals(expected.toString(StockQuote.DATE_PATTERN));
+                expected = expected.plusDays(1);
+                count++;
+            }
+        }
+        assertTrue("Cursor returned from getQuoteCursor did not generate one quote per day of the range", ordered && count == NUMBER_OF_DAYS);
+    }
+
+    /**
+     * Verifies that a cursor which has not been advanced is not positioned on a quote
+     */
+    @Test(expected=IllegalStateException.class)
+    public final void testGetQuoteCursorNegative() {
+        basicStockService.getQuoteCursor(symbol, startRange, endRange).get();
+    }
+
+    /**
+     * Verifies that a batch query returns the quotes of each symbol, grouped by symbol in the order requested
+     */
+    @Test
+    public final void testGetQuotesPositive() {
+        List<String> symbols = Arrays.asList(symbol, "GOOG");
+        Map<String, List<StockQuote>> quotes = basicStockService.getQuotes(symbols, startRange, endRange);
+        assertTrue("Symbols returned from getQuotes do not match the requested symbols", quotes.keySet().containsAll(symbols) && quotes.size() == symbols.size());
+        assertTrue("Quotes returned from getQuotes are not grouped by their symbols", quotes.get("GOOG").get(0).getSymbol().equals("GOOG"));
+    }
+
+    /**
+     * Verifies that a batch query over an empty range leaves out every symbol
+     */
+    @Test
+    public final void testGetQuotesNegative() {
+        assertFalse("Quotes returned from getQuotes contain a symbol without quotes in the range",
+                basicStockService.getQuotes(Arrays.asList(symbol), endRange, startRange).containsKey(symbol));
+    }
 }
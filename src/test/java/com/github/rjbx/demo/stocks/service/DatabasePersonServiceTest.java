@@ -4,11 +4,17 @@ import com.github.rjbx.demo.stocks.model.DatabasePerson;
 import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
 import com.github.rjbx.demo.stocks.utility.DatabaseInitializationException;
 import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.HolderIndex;
 import com.github.rjbx.demo.stocks.utility.PersonServiceException;
+import com.github.rjbx.demo.stocks.utility.UnitOfWork;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -194,4 +200,130 @@ public final class DatabasePersonServiceTest {
         DatabaseStockSymbol stockSymbol = stockSymbols.get(0);
         assertFalse("getSymbol returns an invalid value", stockSymbol.getSymbol().equals("sauerkraut^_^"));
     }
+
+    /**
+     * Verifies that repeated calls to getStockSymbols for the same person are answered from the query cache
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testGetStockSymbolsCachePositive() throws PersonServiceException {
+        personService.addOrUpdatePerson(person);
+        personService.addStockToPerson(stockSymbol, person);
+        personService.getStockSymbols(person);
+        Statistics statistics = DatabaseUtils.getStatistics();
+        long queryHits = statistics.getQueryCacheHitCount();
+        personService.getStockSymbols(person);
+        assertTrue("getStockSymbols was not answered from the query cache", statistics.getQueryCacheHitCount() > queryHits);
+    }
+
+    /**
+     * Verifies that a cached getStockSymbols result does not outlive a later addStockToPerson
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testGetStockSymbolsCacheNegative() throws PersonServiceException {
+        personService.addOrUpdatePerson(person);
+        personService.addStockToPerson(stockSymbol, person);
+        int listSize1 = personService.getStockSymbols(person).size();
+        personService.addStockToPerson(new DatabaseStockSymbol("GOOG"), person);
+        int listSize2 = personService.getStockSymbols(person).size();
+        assertFalse("getStockSymbols returned a stale cached result", listSize2 == listSize1);
+    }
+
+    /**
+     * Verifies that the stock symbols of several persons are loaded with a single query
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testGetStockSymbolsOfPersonsPositive() throws PersonServiceException {
+        DatabasePerson person2 = new DatabasePerson("Ada", "Lovelace");
+        personService.addOrUpdatePerson(person);
+        personService.addOrUpdatePerson(person2);
+        personService.addStockToPerson(stockSymbol, person);
+        personService.addStockToPerson(new DatabaseStockSymbol("GOOG"), person2);
+        personService.addStockToPerson(new DatabaseStockSymbol("MSFT"), person2);
+        Statistics statistics = DatabaseUtils.getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+        Map<Integer, List<DatabaseStockSymbol>> stockSymbols = personService.getStockSymbols(Arrays.asList(person, person2));
+        assertTrue("getStockSymbols(persons) did not load all persons with one statement",
+                statistics.getPrepareStatementCount() == statements + 1);
+        assertTrue("getStockSymbols(persons) does not return the stock symbols of each person",
+                stockSymbols.get(person.getId()).equals(personService.getStockSymbols(person))
+                        && stockSymbols.get(person2.getId()).size() == 2);
+    }
+
+    /**
+     * Verifies that persons without stocks map to an empty list and that no persons produce no entries
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testGetStockSymbolsOfPersonsNegative() throws PersonServiceException {
+        personService.addOrUpdatePerson(person);
+        Map<Integer, List<DatabaseStockSymbol>> stockSymbols = personService.getStockSymbols(Arrays.asList(person));
+        assertFalse("getStockSymbols(persons) returns stock symbols for a person without stocks", !stockSymbols.get(person.getId()).isEmpty());
+        assertFalse("getStockSymbols(persons) returns entries when no persons are given",
+                !personService.getStockSymbols(Collections.<DatabasePerson>emptyList()).isEmpty());
+    }
+
+    /**
+     * Verifies that walking the persons page by page visits every person once, in order of id
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testGetPersonsPagePositive() throws PersonServiceException {
+        personService.addOrUpdatePerson(person);
+        personService.addOrUpdatePerson(new DatabasePerson("Ada", "Lovelace"));
+        List<DatabasePerson> persons = personService.getPersons();
+        int lastId = 0;
+        int visited = 0;
+        List<DatabasePerson> page;
+        do {
+            page = personService.getPersons(lastId, 1);
+            for (DatabasePerson pagePerson : page) {
+                assertTrue("getPersons(afterId, limit) does not return persons in order of id", pagePerson.getId() > lastId);
+                lastId = pagePerson.getId();
+                visited++;
+            }
+        } while (!page.isEmpty());
+        assertTrue("getPersons(afterId, limit) does not visit every person", visited == persons.size());
+    }
+
+    /**
+     * Verifies that a page past the last person is empty and that the projection holds only ids and names
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testGetPersonsPageNegative() throws PersonServiceException {
+        personService.addOrUpdatePerson(person);
+        assertFalse("getPersons(afterId, limit) returns persons past the last id", !personService.getPersons(person.getId(), 10).isEmpty());
+        List<DatabasePerson> names = personService.getPersonNames(person.getId() - 1, 10);
+        assertFalse("getPersonNames(afterId, limit) does not return the projected person",
+                names.size() != 1 || !names.get(0).getLastName().equals(lastName) || names.get(0).getId() != person.getId());
+    }
+
+    /**
+     * Verifies that a person assigned a stock is found among the holders of its symbol
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testAddStockToPersonUpdatesHoldersPositive() throws PersonServiceException {
+        personService.addOrUpdatePerson(person);
+        personService.addStockToPerson(stockSymbol, person);
+        assertTrue("addStockToPerson does not add the person to the holders of the symbol",
+                HolderIndex.INSTANCE.getHolders(stockSymbol.getId()).contains(person.getId()));
+    }
+
+    /**
+     * Verifies that a stock assignment which is rolled back does not reach the holders of its symbol
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testAddStockToPersonUpdatesHoldersNegative() throws PersonServiceException {
+        personService.addOrUpdatePerson(person);
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            personService.addStockToPerson(stockSymbol, person);
+        }
+        assertFalse("addStockToPerson adds the person to the holders of the symbol although it was rolled back",
+                HolderIndex.INSTANCE.getHolders(stockSymbol.getId()).contains(person.getId()));
+    }
 }
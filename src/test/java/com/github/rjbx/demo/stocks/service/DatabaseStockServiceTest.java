@@ -2,12 +2,21 @@ package com.github.rjbx.demo.stocks.service;
 
 import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
 import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.model.StockQuoteBar;
 import com.github.rjbx.demo.stocks.utility.*;
 import org.apache.http.annotation.Immutable;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import org.joda.time.DateTime;
 
@@ -164,4 +173,168 @@ public final class DatabaseStockServiceTest {
     public final void timeNegative() throws StockServiceException {
                 databaseStockService.getQuote(stockSymbol.getSymbol(), endRange, startRange, interval);
     }
+
+    /**
+     * Verifies that each bar summarizes quotes of the requested symbol and that its prices are consistent
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testGetQuoteBarsPositive() throws StockServiceException {
+        // the range of the quotes stored by the initialization script
+        DateTime seedStart = new DateTime(2016, 6, 1, 0, 0);
+        DateTime seedEnd = new DateTime(2016, 7, 1, 0, 0);
+        boolean consistent = true;
+        for (StockQuoteBar bar : databaseStockService.getQuoteBars(stockSymbol.getSymbol(), seedStart, seedEnd, interval)) {
+            consistent &= bar.getSymbol().equals(stockSymbol.getSymbol()) && bar.getCount() > 0
+                    && !bar.getOpenTime().isBefore(bar.getTime()) && bar.getOpenTime().isBefore(bar.getTime().plusHours(interval.amount()))
+                    && bar.getHigh().compareTo(bar.getLow()) >= 0
+                    && bar.getHigh().compareTo(bar.getOpen()) >= 0 && bar.getLow().compareTo(bar.getClose()) <= 0;
+        }
+        assertTrue("Bars returned from getQuoteBars are not consistent with the quotes they summarize", consistent);
+    }
+
+    /**
+     * Verifies that a reversed date range returns no bars
+     * @throws StockServiceException
+     */
+    @Test(expected=StockServiceException.class)
+    public final void testGetQuoteBarsNegative() throws StockServiceException {
+        databaseStockService.getQuoteBars(stockSymbol.getSymbol(), endRange, startRange, interval);
+    }
+
+    /**
+     * Verifies that a cursor over the seeded range returns the quotes of the symbol in time order
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testGetQuoteCursorPositive() throws StockServiceException {
+        DateTime seedStart = new DateTime(2016, 6, 1, 0, 0);
+        DateTime seedEnd = new DateTime(2016, 7, 1, 0, 0);
+        int count = 0;
+        boolean consistent = true;
+        try (StockQuoteCursor cursor = databaseStockService.getQuoteCursor(stockSymbol.getSymbol(), seedStart, seedEnd)) {
+            while (cursor.next()) {
+                consistent &= cursor.get().getSymbol().equals(stockSymbol.getSymbol()) && !cursor.get().getTime().isBefore(seedStart);
+                count++;
+            }
+        }
+        assertTrue("Cursor returned from getQuoteCursor did not return the quotes of the symbol", consistent && count > 0);
+    }
+
+    /**
+     * Verifies that a cursor over a reversed date range returns no quotes and releases its connection
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testGetQuoteCursorNegative() throws StockServiceException {
+        StockQuoteCursor cursor = databaseStockService.getQuoteCursor(stockSymbol.getSymbol(), endRange, startRange);
+        cursor.close();
+        assertFalse("Closed cursor returned from getQuoteCursor still returns quotes", cursor.next());
+    }
+
+    /**
+     * Verifies that a batch query returns the seeded quotes of each stored symbol, grouped by symbol
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testGetQuotesPositive() throws StockServiceException {
+        List<String> symbols = Arrays.asList("GOOG", "AAPL", "AMZN");
+        Map<String, List<StockQuote>> quotes = databaseStockService.getQuotes(symbols, new DateTime(2016, 6, 1, 0, 0), new DateTime(2016, 7, 1, 0, 0));
+        boolean grouped = quotes.keySet().containsAll(symbols);
+        for (Map.Entry<String, List<StockQuote>> entry : quotes.entrySet()) {
+            for (StockQuote quote : entry.getValue()) {
+                grouped &= quote.getSymbol().equals(entry.getKey());
+            }
+        }
+        assertTrue("Quotes returned from getQuotes are not grouped by their symbols", grouped);
+        assertTrue("Latest quotes returned from getQuotes do not include each stored symbol",
+                databaseStockService.getQuotes(symbols).keySet().containsAll(symbols));
+    }
+
+    /**
+     * Verifies that a batch query leaves out symbols which are not stored
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testGetQuotesNegative() throws StockServiceException {
+        assertFalse("Latest quotes returned from getQuotes include a symbol which is not stored",
+                databaseStockService.getQuotes(Arrays.asList("AAPL", "NONE")).containsKey("NONE"));
+    }
+
+    /**
+     * Verifies that a bulk import stores every quote in batches of the requested size
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testAddQuotesPositive() throws StockServiceException {
+        List<StockQuote> quotes = new ArrayList<StockQuote>();
+        DateTime first = new DateTime(2016, 8, 1, 9, 30);
+        for (int i = 0; i < 2500; i++) {
+            quotes.add(new StockQuote(first.plusMinutes(i), new BigDecimal("10.00").add(BigDecimal.valueOf(i % 100, 2)), "BULK"));
+        }
+        IngestStatistics statistics = databaseStockService.addQuotes(quotes, 1000);
+        assertTrue("Statistics returned from addQuotes do not match the imported quotes",
+                statistics.getRows() == 2500 && statistics.getBatches() == 3);
+        assertTrue("Quotes stored by addQuotes are not returned for their range",
+                databaseStockService.getQuote("BULK", first, first.plusMinutes(2499)).size() == 2500);
+        assertTrue("Latest quote of a symbol created by addQuotes is not the newest imported quote",
+                databaseStockService.getQuote("BULK").getTime().equals(first.plusMinutes(2499)));
+    }
+
+    /**
+     * Verifies that importing stored quotes again updates them instead of adding rows
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testAddQuotesNegative() throws StockServiceException {
+        DateTime seedStart = new DateTime(2016, 6, 1, 0, 0);
+        DateTime seedEnd = new DateTime(2016, 7, 1, 0, 0);
+        List<StockQuote> stored = databaseStockService.getQuote(stockSymbol.getSymbol(), seedStart, seedEnd);
+        databaseStockService.addQuotes(stored);
+        assertFalse("Importing stored quotes again added rows",
+                databaseStockService.getQuote(stockSymbol.getSymbol(), seedStart, seedEnd).size() != stored.size());
+    }
+
+    /**
+     * Verifies that a cursor failing with an unchecked exception rolls back the open batch, including the symbols it created
+     * @throws DatabaseConnectionException
+     * @throws SQLException
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testAddQuotesUncheckedFailureNegative() throws DatabaseConnectionException, SQLException, StockServiceException {
+        final StockQuote quote = new StockQuote(new DateTime(2016, 8, 1, 9, 30), BigDecimal.TEN, "FAIL");
+        StockQuoteCursor failing = new StockQuoteCursor() {
+            private boolean read;
+
+            @Override
+            public boolean next() {
+                if (read) {
+                    throw new IllegalArgumentException("Invalid format: \"yesterday\"");
+                }
+                read = true;
+                return true;
+            }
+
+            @Override
+            public StockQuote get() {
+                return quote;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            databaseStockService.addQuotes(failing, 1000);
+        } catch (IllegalArgumentException e) {
+            // the failure of the cursor is passed on unchanged
+        }
+        try (Connection connection = DatabaseUtils.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select count(*) from stock_symbols where symbol = 'FAIL'")) {
+            resultSet.next();
+            assertFalse("Symbol created by a batch whose cursor failed was committed", resultSet.getInt(1) != 0);
+        }
+    }
 }
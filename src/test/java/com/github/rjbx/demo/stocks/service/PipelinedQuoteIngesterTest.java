@@ -0,0 +1,120 @@
+package com.github.rjbx.demo.stocks.service;
+
+import com.github.rjbx.demo.stocks.utility.DatabaseConnectionException;
+import com.github.rjbx.demo.stocks.utility.DatabaseInitializationException;
+import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.PipelineStatistics;
+import com.github.rjbx.demo.stocks.utility.StockServiceException;
+import com.github.rjbx.demo.stocks.utility.XMLUnmarshalException;
+import com.github.rjbx.demo.stocks.utility.XMLUtils;
+import org.apache.http.annotation.Immutable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the PipelinedQuoteIngester class.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class PipelinedQuoteIngesterTest {
+    // fields of this class
+    private DatabaseStockService databaseStockService;
+    private PipelinedQuoteIngester ingester;
+
+    /**
+     * Sets up logic common to each test
+     * @throws DatabaseInitializationException
+     * @throws StockServiceException
+     */
+    @Before
+    public final void setUp() throws DatabaseInitializationException, StockServiceException {
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+        databaseStockService = (DatabaseStockService) ServiceFactory.createStockService(ServiceType.DATABASE);
+        // small batches and queues so that the parser has to wait for the writers
+        ingester = new PipelinedQuoteIngester(databaseStockService, 3, 2, 1);
+    }
+
+    /**
+     * Verifies that every quote of the feed is parsed and stored
+     * @throws XMLUnmarshalException
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testIngestPositive() throws XMLUnmarshalException, StockServiceException {
+        int quoteCount = XMLUtils.unmarshal(XMLUtils.xmlFilePath).getStock().size();
+        PipelineStatistics statistics = ingester.ingest(XMLUtils.xmlFilePath);
+        assertTrue("Parser did not produce every quote of the feed", statistics.getParsedRows() == quoteCount);
+        assertTrue("Writers did not store every quote of the feed", statistics.getWritten().getRows() == quoteCount);
+        assertTrue("Queue depth exceeded the capacity of the queues", statistics.getMaxQueueDepth() <= statistics.getQueueCapacity());
+        assertTrue("Quote of the feed cannot be read back", databaseStockService.getQuote("VNET") != null);
+    }
+
+    /**
+     * Verifies that a feed which breaks off midway is reported as malformed
+     * @throws IOException
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testIngestNegative() throws IOException, StockServiceException {
+        File feed = File.createTempFile("feed", ".xml");
+        feed.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(feed)) {
+            outputStream.write("<stocks>\n    <stock symbol=\"AAPL\" price=\"1.00\" time=\"2015-02-10 00:00:01\"/>\n    <stock symbol="
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        boolean rejected = false;
+        try {
+            ingester.ingest(feed.getPath());
+        } catch (XMLUnmarshalException e) {
+            rejected = true;
+        }
+        assertFalse("Malformed feed was not reported", !rejected);
+    }
+
+    /**
+     * Verifies that a feed with a price which is not a number is reported as malformed
+     * @throws IOException
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testIngestUnparsablePriceNegative() throws IOException, StockServiceException {
+        File feed = File.createTempFile("feed", ".xml");
+        feed.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(feed)) {
+            outputStream.write("<stocks>\n    <stock symbol=\"AAPL\" price=\"one dollar\" time=\"2015-02-10 00:00:01\"/>\n</stocks>\n"
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        boolean rejected = false;
+        try {
+            ingester.ingest(feed.getPath());
+        } catch (XMLUnmarshalException e) {
+            rejected = true;
+        }
+        assertFalse("Feed with an unparsable price was not reported as malformed", !rejected);
+    }
+
+    /**
+     * Verifies that more writers than the connection pool can serve are rejected up front
+     * @throws DatabaseConnectionException
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testConstructorNegative() throws DatabaseConnectionException, StockServiceException {
+        boolean rejected = false;
+        try {
+            new PipelinedQuoteIngester(databaseStockService, DatabaseUtils.getMaximumPoolSize() + 1, 2, 1);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertFalse("Writers which would exhaust the connection pool were not rejected", !rejected);
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.rjbx.demo.stocks.service;
+
+import com.github.rjbx.demo.stocks.model.DatabasePerson;
+import com.github.rjbx.demo.stocks.model.PortfolioValuation;
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.utility.DatabaseInitializationException;
+import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import com.github.rjbx.demo.stocks.utility.PersonServiceException;
+import com.github.rjbx.demo.stocks.utility.PortfolioValuationException;
+import com.github.rjbx.demo.stocks.utility.StockServiceException;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the PortfolioValuationEngine class.
+ * @author Bob Basmaji
+ */
+public final class PortfolioValuationEngineTest {
+    // fields of this class
+    private PersonService personService;
+    private StockService stockService;
+    private ExecutorService executor;
+    private PortfolioValuationEngine engine;
+    private DatabasePerson janeDoe;
+    private DatabasePerson johnDoe;
+
+    /**
+     * Sets up logic common to each test
+     * @throws DatabaseInitializationException
+     * @throws PersonServiceException
+     * @throws StockServiceException
+     */
+    @Before
+    public final void setUp() throws DatabaseInitializationException, PersonServiceException, StockServiceException {
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+        personService = ServiceFactory.createPersonService();
+        stockService = ServiceFactory.createStockService(ServiceType.DATABASE);
+        executor = Executors.newFixedThreadPool(2);
+        engine = new PortfolioValuationEngine(personService, stockService, executor);
+        for (DatabasePerson person : personService.getPersons()) {
+            if (person.getFirstName().equals("Jane")) {
+                janeDoe = person;
+            } else if (person.getFirstName().equals("John")) {
+                johnDoe = person;
+            }
+        }
+    }
+
+    /**
+     * Stops the threads valuing portfolios
+     */
+    @After
+    public final void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Verifies that every portfolio is valued on load, and that a new price revalues the portfolios holding its symbol
+     * @throws PortfolioValuationException
+     * @throws PersonServiceException
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testOnQuotePositive() throws PortfolioValuationException, PersonServiceException, StockServiceException {
+        assertTrue("load() does not value every portfolio", engine.load() == personService.getPersons().size());
+        StockQuote apple = stockService.getQuote("AAPL");
+        BigDecimal value = stockService.getQuote("AMZN").getPrice().add(apple.getPrice());
+        assertTrue("load() does not value a portfolio at the latest prices", engine.getValuation(johnDoe.getId()).getValue().compareTo(value) == 0);
+
+        StockQuote tick = new StockQuote(apple.getTime().plusMinutes(1), apple.getPrice().add(BigDecimal.TEN), "AAPL");
+        assertTrue("onQuote() does not revalue both holders of the symbol", engine.onQuote(tick) == 2);
+        assertTrue("onQuote() does not apply the new price",
+                engine.getValuation(johnDoe.getId()).getValue().compareTo(value.add(BigDecimal.TEN)) == 0);
+        assertTrue("recompute latency is not recorded", engine.getRecomputeTime().getCount() > 0);
+    }
+
+    /**
+     * Verifies that an older price and a price of a symbol a person does not hold leave the valuation of the person unchanged
+     * @throws PortfolioValuationException
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testOnQuoteNegative() throws PortfolioValuationException, StockServiceException {
+        engine.load();
+        PortfolioValuation valuation = engine.getValuation(janeDoe.getId());
+        StockQuote apple = stockService.getQuote("AAPL");
+        assertFalse("onQuote() applies a price older than the latest price",
+                engine.onQuote(new StockQuote(new DateTime(2000, 1, 1, 0, 0), BigDecimal.ONE, "AAPL")) != 0);
+        StockQuote amazon = stockService.getQuote("AMZN");
+        engine.onQuote(new StockQuote(amazon.getTime().plusMinutes(1), amazon.getPrice().add(BigDecimal.TEN), "AMZN"));
+        assertFalse("onQuote() revalues a portfolio not holding the symbol", engine.getValuation(janeDoe.getId()) != valuation);
+        assertFalse("a stale valuation is returned past its bound",
+                engine.getValuation(janeDoe.getId(), 0).getTime().isBefore(valuation.getTime()));
+    }
+
+    /**
+     * Verifies that a quote of one symbol does not make a valuation using an old price of another symbol count as current
+     * @throws Exception
+     */
+    @Test
+    public final void testGetValuationStalePriceNegative() throws Exception {
+        engine.load();
+        StockQuote amazon = stockService.getQuote("AMZN");
+        StockQuote newAmazon = new StockQuote(amazon.getTime().plusMinutes(1), amazon.getPrice().add(BigDecimal.TEN), "AMZN");
+        ((DatabaseStockService) stockService).addQuotes(Collections.singletonList(newAmazon));
+        Thread.sleep(50);
+        StockQuote apple = stockService.getQuote("AAPL");
+        engine.onQuote(new StockQuote(apple.getTime().plusMinutes(1), apple.getPrice(), "AAPL"));
+        BigDecimal value = newAmazon.getPrice().add(apple.getPrice());
+        assertFalse("a valuation using a price older than its bound is returned without rereading the price",
+                engine.getValuation(johnDoe.getId(), 25).getValue().compareTo(value) != 0);
+    }
+
+    /**
+     * Verifies that a quote applied while portfolios are being reloaded is not overwritten by a valuation from an older price
+     * @throws Exception
+     */
+    @Test
+    public final void testOnQuoteDuringLoadPositive() throws Exception {
+        engine.load();
+        StockQuote apple = stockService.getQuote("AAPL");
+        BigDecimal value = stockService.getQuote("AMZN").getPrice().add(apple.getPrice());
+        ExecutorService loader = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 1; i <= 200; i++) {
+                Future<Integer> loading = loader.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws PortfolioValuationException {
+                        return engine.load();
+                    }
+                });
+                // lets the load read the stocks before the quote arrives
+                Thread.sleep(i % 4);
+                engine.onQuote(new StockQuote(apple.getTime().plusMinutes(i), apple.getPrice().add(BigDecimal.valueOf(i)), "AAPL"));
+                loading.get();
+                assertTrue("a valuation from an older price replaced the valuation from the latest price",
+                        engine.getValuation(johnDoe.getId()).getValue().compareTo(value.add(BigDecimal.valueOf(i))) == 0);
+            }
+        } finally {
+            loader.shutdownNow();
+        }
+    }
+}
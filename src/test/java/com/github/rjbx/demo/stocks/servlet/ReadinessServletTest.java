@@ -0,0 +1,75 @@
+package com.github.rjbx.demo.stocks.servlet;
+
+import com.github.rjbx.demo.stocks.utility.ApplicationBootstrap;
+import com.github.rjbx.demo.stocks.utility.DatabaseInitializationException;
+import com.github.rjbx.demo.stocks.utility.DatabaseUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@code ReadinessServlet} class.
+ * @author Bob Basmaji
+ */
+public class ReadinessServletTest {
+    // private fields of this class
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ServletContext servletContext;
+    private ReadinessServlet servlet;
+
+    /**
+     * Sets up the logic common to each test in this class
+     * @throws IOException
+     */
+    @Before
+    public final void setUp() throws IOException {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        servletContext = mock(ServletContext.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        servlet = new ReadinessServlet() {
+            public ServletContext getServletContext() {
+                return servletContext; // return the mock
+            }
+        };
+    }
+
+    /**
+     * Verifies that the servlet reports ready once the bootstrap has finished
+     * @throws IOException
+     * @throws InterruptedException
+     * @throws DatabaseInitializationException
+     */
+    @Test
+    public final void testDoGetPositive() throws IOException, InterruptedException, DatabaseInitializationException {
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+        ApplicationBootstrap bootstrap = new ApplicationBootstrap();
+        bootstrap.start();
+        assertTrue("bootstrap did not become ready: " + bootstrap.getFailure(), bootstrap.awaitReady(60, TimeUnit.SECONDS));
+        when(servletContext.getAttribute(BootstrapListener.BOOTSTRAP_ATTRIBUTE)).thenReturn(bootstrap);
+        servlet.doGet(request, response);
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+    }
+
+    /**
+     * Verifies that the servlet reports unavailable before the bootstrap has been started
+     * @throws IOException
+     */
+    @Test
+    public final void testDoGetNegative() throws IOException {
+        when(servletContext.getAttribute(BootstrapListener.BOOTSTRAP_ATTRIBUTE)).thenReturn(new ApplicationBootstrap());
+        servlet.doGet(request, response);
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ApplicationBootstrap class.
+ * @author Bob Basmaji
+ */
+public final class ApplicationBootstrapTest {
+    // fields of this class
+    private ApplicationBootstrap bootstrap;
+
+    /**
+     * Sets up logic common to each test
+     * @throws DatabaseInitializationException
+     */
+    @Before
+    public final void setUp() throws DatabaseInitializationException {
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+        SymbolDictionary.INSTANCE.clear();
+        HolderIndex.INSTANCE.clear();
+        bootstrap = new ApplicationBootstrap();
+    }
+
+    /**
+     * Verifies that the bootstrap becomes ready and loads the in-memory indexes
+     * @throws InterruptedException
+     */
+    @Test
+    public final void testStartPositive() throws InterruptedException {
+        bootstrap.start();
+        assertTrue("bootstrap did not become ready: " + bootstrap.getFailure(), bootstrap.awaitReady(60, TimeUnit.SECONDS));
+        assertTrue("bootstrap did not warm up the in-memory indexes",
+                SymbolDictionary.INSTANCE.isLoaded() && HolderIndex.INSTANCE.isLoaded());
+    }
+
+    /**
+     * Verifies that a bootstrap which has not been started is not ready and cannot be started twice
+     */
+    @Test(expected = IllegalStateException.class)
+    public final void testStartNegative() {
+        assertFalse("bootstrap is ready before it was started", bootstrap.isReady());
+        bootstrap.start();
+        bootstrap.start();
+    }
+}
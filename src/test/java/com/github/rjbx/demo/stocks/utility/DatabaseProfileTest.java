@@ -0,0 +1,59 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.Immutable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the DatabaseProfile enum.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class DatabaseProfileTest {
+    // fields of this class
+    private String property;
+
+    /**
+     * Saves the profile property so that each test can change it
+     */
+    @Before
+    public final void setUp() {
+        property = System.getProperty(DatabaseProfile.PROFILE_PROPERTY);
+    }
+
+    /**
+     * Restores the profile property
+     */
+    @After
+    public final void tearDown() {
+        if (property == null) {
+            System.clearProperty(DatabaseProfile.PROFILE_PROPERTY);
+        } else {
+            System.setProperty(DatabaseProfile.PROFILE_PROPERTY, property);
+        }
+    }
+
+    /**
+     * Verifies that the profile is chosen by the system property regardless of case
+     */
+    @Test
+    public final void testActivePositive() {
+        System.setProperty(DatabaseProfile.PROFILE_PROPERTY, "Embedded");
+        assertTrue("active() does not return the profile named by the system property",
+                DatabaseProfile.active() == DatabaseProfile.EMBEDDED);
+        System.clearProperty(DatabaseProfile.PROFILE_PROPERTY);
+        assertTrue("active() does not default to MySQL", DatabaseProfile.active() == DatabaseProfile.MYSQL);
+    }
+
+    /**
+     * Verifies that a property naming no profile is rejected
+     */
+    @Test(expected=IllegalArgumentException.class)
+    public final void testActiveNegative() {
+        System.setProperty(DatabaseProfile.PROFILE_PROPERTY, "oracle");
+        DatabaseProfile.active();
+    }
+}
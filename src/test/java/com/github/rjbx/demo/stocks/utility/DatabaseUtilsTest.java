@@ -3,7 +3,6 @@ package com.github.rjbx.demo.stocks.utility;
 import com.github.rjbx.demo.stocks.model.StockQuote;
 import com.github.rjbx.demo.stocks.service.ServiceFactory;
 import com.github.rjbx.demo.stocks.service.ServiceType;
-import com.mysql.jdbc.exceptions.jdbc4.MySQLSyntaxErrorException;
 import org.apache.http.annotation.Immutable;
 import org.hibernate.Session;
 import org.junit.Before;
@@ -11,6 +10,7 @@ import org.junit.Test;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Calendar;
 
@@ -53,8 +53,10 @@ public final class DatabaseUtilsTest {
      * @throws DatabaseConnectionException
      */
     @Test
-    public final void testGetConnectionPositive() throws DatabaseConnectionException {
-        assertTrue("getConnection() return value is not a valid connection", DatabaseUtils.getConnection() instanceof Connection);
+    public final void testGetConnectionPositive() throws DatabaseConnectionException, SQLException {
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            assertTrue("getConnection() return value is not a valid connection", connection instanceof Connection);
+        }
     }
 
     /**
@@ -62,8 +64,38 @@ public final class DatabaseUtilsTest {
      * @throws DatabaseConnectionException
      */
     @Test
-    public final void testGetConnectionNegative() throws DatabaseConnectionException {
-        assertFalse("getConnection() return value is an invalid object", DatabaseUtils.getConnection() instanceof Calendar);
+    public final void testGetConnectionNegative() throws DatabaseConnectionException, SQLException {
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            assertFalse("getConnection() return value is an invalid object", connection instanceof Calendar);
+        }
+    }
+
+    /**
+     * Verifies that closing a borrowed connection returns it to the pool
+     * @throws DatabaseConnectionException
+     * @throws SQLException
+     */
+    @Test
+    public final void testGetConnectionReturnsToPoolPositive() throws DatabaseConnectionException, SQLException {
+        PoolMetrics metrics = DatabaseUtils.getPoolMetrics();
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            assertTrue("borrowed connection is not counted as active", metrics.getActiveConnections() > 0);
+        }
+        assertTrue("closed connection is still counted as active", metrics.getActiveConnections() == 0);
+    }
+
+    /**
+     * Verifies that borrowing a connection records a wait-time sample
+     * @throws DatabaseConnectionException
+     * @throws SQLException
+     */
+    @Test
+    public final void testGetConnectionRecordsWaitTimeNegative() throws DatabaseConnectionException, SQLException {
+        long samples = DatabaseUtils.getPoolMetrics().getWaitTime().getCount();
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            assertFalse("borrowing a connection does not record a wait-time sample",
+                    DatabaseUtils.getPoolMetrics().getWaitTime().getCount() == samples);
+        }
     }
 
     /**
@@ -75,8 +107,10 @@ public final class DatabaseUtilsTest {
     @Test
     public final void testInitializeDatabasePositive() throws DatabaseConnectionException, DatabaseInitializationException, SQLException {
         DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
-        assertTrue("getConnection() cannot execute a statement", DatabaseUtils.getConnection().createStatement().execute("select * from quotes"));
-        DatabaseUtils.getConnection().createStatement().executeUpdate("DROP TABLE quotes;");
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            assertTrue("getConnection() cannot execute a statement", connection.createStatement().execute("select * from quotes"));
+            connection.createStatement().executeUpdate("DROP TABLE quotes;");
+        }
     }
 
     /**
@@ -89,13 +123,15 @@ public final class DatabaseUtilsTest {
     public final void testInitializeDatabaseNegative() throws DatabaseConnectionException, DatabaseInitializationException, SQLException {
         DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
         boolean doesExecute = true;
-        try {
-            DatabaseUtils.getConnection().createStatement().execute("SELECT creme from oreo");
-        } catch (MySQLSyntaxErrorException e) {
-            doesExecute = false;
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            try {
+                connection.createStatement().execute("SELECT creme from oreo");
+            } catch (SQLException e) {
+                doesExecute = false;
+            }
+            assertFalse("getConnection() executes an invalid statement", doesExecute);
+            connection.createStatement().executeUpdate("DROP TABLE quotes;");
         }
-        assertFalse("getConnection() executes an invalid statement", doesExecute);
-        DatabaseUtils.getConnection().createStatement().executeUpdate("DROP TABLE quotes;");
     }
 
     /**
@@ -119,4 +155,35 @@ public final class DatabaseUtilsTest {
     public final void testPersistXMLDataNegative() throws StockServiceException, XMLUnmarshalException {
         DatabaseUtils.persistXMLData("null.xml");
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifies that persistXMLData() stores every quote of the XML file in batches and reports the import
+     * @throws StockServiceException
+     * @throws XMLUnmarshalException
+     */
+    @Test
+    public final void testPersistXMLDataStatisticsPositive() throws StockServiceException, XMLUnmarshalException {
+        IngestStatistics statistics = DatabaseUtils.persistXMLData(XMLUtils.xmlFilePath);
+        int quoteCount = XMLUtils.unmarshal(XMLUtils.xmlFilePath).getStock().size();
+        assertTrue("persistXMLData() does not report every stored quote", statistics.getRows() == quoteCount);
+        assertTrue("persistXMLData() does not commit in batches", statistics.getBatches() > 0 && statistics.getBatches() <= quoteCount);
+    }
+
+    /**
+     * Verifies that persisting the same XML file twice does not store a symbol more than once
+     * @throws StockServiceException
+     * @throws XMLUnmarshalException
+     * @throws DatabaseConnectionException
+     * @throws SQLException
+     */
+    @Test
+    public final void testPersistXMLDataStatisticsNegative() throws StockServiceException, XMLUnmarshalException, DatabaseConnectionException, SQLException {
+        DatabaseUtils.persistXMLData(XMLUtils.xmlFilePath);
+        DatabaseUtils.persistXMLData(XMLUtils.xmlFilePath);
+        try (Connection connection = DatabaseUtils.getConnection();
+             ResultSet resultSet = connection.createStatement().executeQuery("select count(*) from stock_symbols where symbol = 'WIFI'")) {
+            resultSet.next();
+            assertFalse("persistXMLData() stores a symbol more than once", resultSet.getInt(1) > 1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the HolderIndex class.
+ * @author Bob Basmaji
+ */
+public final class HolderIndexTest {
+    // fields of this class
+    private static final int NUMBER_OF_PEOPLE = 10000;
+    private static final int EVERYONE = 1;
+    private static final int EVENS = 2;
+    private static final int THIRDS = 3;
+    private HolderIndex index;
+
+    /**
+     * Sets up logic common to each test
+     */
+    @Before
+    public final void setUp() {
+        index = HolderIndex.INSTANCE;
+        index.clear();
+        for (int personId = 1; personId <= NUMBER_OF_PEOPLE; personId++) {
+            index.add(EVERYONE, personId);
+            if (personId % 2 == 0) {
+                index.add(EVENS, personId);
+            }
+            if (personId % 3 == 0) {
+                index.add(THIRDS, personId);
+            }
+        }
+    }
+
+    /**
+     * Discards the holders added by each test
+     */
+    @After
+    public final void tearDown() {
+        index.clear();
+    }
+
+    /**
+     * Verifies that set operations over several symbols match the people added to each of them
+     */
+    @Test
+    public final void testGetHoldersPositive() {
+        assertTrue("holder count does not match the people added", index.getHolderCount(EVERYONE) == NUMBER_OF_PEOPLE);
+        RoaringBitmap both = index.getHoldersOfAll(EVENS, THIRDS);
+        assertTrue("holders of all symbols are not the people holding each of them",
+                both.getCardinality() == NUMBER_OF_PEOPLE / 6 && both.contains(6) && !both.contains(4));
+        RoaringBitmap either = index.getHoldersOfAny(EVENS, THIRDS);
+        assertTrue("holders of any symbol are not the people holding one of them",
+                either.contains(3) && either.contains(4) && !either.contains(5));
+    }
+
+    /**
+     * Verifies that a symbol nobody holds has no holders, and that modifying a result does not modify the index
+     */
+    @Test
+    public final void testGetHoldersNegative() {
+        assertFalse("a symbol nobody holds has holders", !index.getHolders(42).isEmpty() || !index.getHoldersOfAll(EVENS, 42).isEmpty());
+        index.getHolders(EVENS).clear();
+        assertFalse("clearing a returned bitmap modifies the index", index.getHolderCount(EVENS) == 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the IdAllocator class.
+ * @author Bob Basmaji
+ */
+public final class IdAllocatorTest {
+
+    /**
+     * Sets up logic common to each test
+     * @throws DatabaseInitializationException
+     */
+    @Before
+    public final void setUp() throws DatabaseInitializationException {
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+    }
+
+    /**
+     * Verifies that ids drawn across several blocks are increasing and never repeated
+     * @throws SQLException
+     * @throws DatabaseConnectionException
+     */
+    @Test
+    public final void testNextPositive() throws SQLException, DatabaseConnectionException {
+        int count = DatabaseUtils.getIdAllocationSize() * 3;
+        int previous = IdAllocator.INSTANCE.next("quotes");
+        boolean increasing = true;
+        for (int i = 1; i < count; i++) {
+            int id = IdAllocator.INSTANCE.next("quotes");
+            increasing &= id > previous;
+            previous = id;
+        }
+        assertTrue("ids drawn across several blocks are not increasing", increasing);
+    }
+
+    /**
+     * Verifies that a block is reserved while every connection of the main pool is borrowed, as it is
+     * when as many writers as the pool has connections each need a new block
+     * @throws SQLException
+     * @throws DatabaseConnectionException
+     */
+    @Test
+    public final void testNextExhaustedPoolPositive() throws SQLException, DatabaseConnectionException {
+        List<Connection> borrowed = new ArrayList<Connection>();
+        try {
+            for (int i = 0; i < DatabaseUtils.getMaximumPoolSize(); i++) {
+                borrowed.add(DatabaseUtils.getConnection());
+            }
+            IdAllocator.INSTANCE.clear();
+            assertTrue("Block could not be reserved while the main pool was exhausted", IdAllocator.INSTANCE.next("quotes") > 0);
+        } finally {
+            for (Connection connection : borrowed) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Verifies that ids cannot be drawn for a table without a row in the "id_generators" table
+     * @throws SQLException
+     */
+    @Test(expected = SQLException.class)
+    public final void testNextNegative() throws SQLException {
+        IdAllocator.INSTANCE.next("no_such_table");
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.Immutable;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the IngestStatistics class.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class IngestStatisticsTest {
+
+    /**
+     * Verifies that throughput is the number of rows divided by the elapsed time
+     */
+    @Test
+    public final void testGetRowsPerSecondPositive() {
+        IngestStatistics statistics = new IngestStatistics(5000, 5, TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue("Throughput does not match rows over elapsed time", statistics.getRowsPerSecond() == 10000);
+    }
+
+    /**
+     * Verifies that an import which took no time does not report infinite throughput
+     */
+    @Test
+    public final void testGetRowsPerSecondNegative() {
+        assertFalse("Throughput of an import which took no time is not finite",
+                Double.isInfinite(new IngestStatistics(10, 1, 0).getRowsPerSecond()));
+    }
+
+    /**
+     * Verifies that the mean commit latency is the total commit time divided by the number of batches
+     */
+    @Test
+    public final void testGetMeanCommitMillisPositive() {
+        IngestStatistics statistics = new IngestStatistics(5000, 5, TimeUnit.MILLISECONDS.toNanos(500),
+                TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue("Mean commit latency does not match commit time over batches", statistics.getMeanCommitMillis() == 10);
+        assertTrue("Maximum commit latency does not match the slowest commit", statistics.getMaxCommitMillis() == 20);
+    }
+
+    /**
+     * Verifies that an import without batches does not report an undefined commit latency
+     */
+    @Test
+    public final void testGetMeanCommitMillisNegative() {
+        assertFalse("Mean commit latency of an import without batches is not a number",
+                Double.isNaN(new IngestStatistics(0, 0, 0, 0, 0).getMeanCommitMillis()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the LatencyRecorder class.
+ * @author Bob Basmaji
+ */
+public final class LatencyRecorderTest {
+    // fields of this class
+    private LatencyRecorder recorder;
+
+    /**
+     * Sets up logic common to each test
+     */
+    @Before
+    public final void setUp() {
+        recorder = new LatencyRecorder("test");
+        recorder.record(TimeUnit.MILLISECONDS.toNanos(2));
+        recorder.record(TimeUnit.MILLISECONDS.toNanos(4));
+    }
+
+    /**
+     * Verifies that the mean and maximum reflect the recorded samples
+     */
+    @Test
+    public final void testRecordPositive() {
+        assertTrue("recorded sample count does not match the number of samples", recorder.getCount() == 2);
+        assertTrue("mean does not match the recorded samples", recorder.getMeanMillis() == 3);
+        assertTrue("maximum does not match the largest recorded sample", recorder.getMaxMillis() == 4);
+    }
+
+    /**
+     * Verifies that reset discards the recorded samples
+     */
+    @Test
+    public final void testRecordNegative() {
+        recorder.reset();
+        assertFalse("reset does not discard the recorded samples", recorder.getCount() > 0 || recorder.getMaxMillis() > 0);
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the LatestQuoteTable class.
+ * @author Bob Basmaji
+ */
+public final class LatestQuoteTableTest {
+    // fields of this class
+    private static final int SYMBOL_ID = 100;
+    private LatestQuoteTable table;
+    private StockQuote olderQuote;
+    private StockQuote newerQuote;
+
+    /**
+     * Sets up logic common to each test
+     */
+    @Before
+    public final void setUp() {
+        table = LatestQuoteTable.INSTANCE;
+        table.clear();
+        DateTime now = DateTime.now();
+        olderQuote = new StockQuote(now.minusDays(1), new BigDecimal(10), "AAPL");
+        newerQuote = new StockQuote(now, new BigDecimal(20), "AAPL");
+    }
+
+    /**
+     * Discards the entries made by each test
+     */
+    @After
+    public final void tearDown() {
+        table.clear();
+    }
+
+    /**
+     * Verifies that a loaded entry moves forward to a newer offered quote but not back to an older one
+     */
+    @Test
+    public final void testOfferPositive() {
+        table.load(SYMBOL_ID, olderQuote);
+        table.offer(SYMBOL_ID, newerQuote);
+        table.offer(SYMBOL_ID, olderQuote);
+        assertTrue("entry does not hold the newest offered quote", table.get(SYMBOL_ID) == newerQuote);
+    }
+
+    /**
+     * Verifies that a quote offered before the symbol was loaded is not served as the newest quote
+     */
+    @Test
+    public final void testOfferNegative() {
+        table.offer(SYMBOL_ID, newerQuote);
+        assertNull("quote offered to an unloaded entry is served as the newest quote", table.get(SYMBOL_ID));
+    }
+
+    /**
+     * Verifies that loading an older quote keeps a newer quote offered while the load was in flight
+     */
+    @Test
+    public final void testLoadPositive() {
+        table.offer(SYMBOL_ID, newerQuote);
+        assertTrue("load discards a newer quote offered meanwhile", table.load(SYMBOL_ID, olderQuote) == newerQuote);
+    }
+
+    /**
+     * Verifies that clearing the table discards loaded entries
+     */
+    @Test
+    public final void testLoadNegative() {
+        table.load(SYMBOL_ID, olderQuote);
+        table.clear();
+        assertFalse("cleared table still serves a loaded entry", table.get(SYMBOL_ID) != null);
+    }
+}
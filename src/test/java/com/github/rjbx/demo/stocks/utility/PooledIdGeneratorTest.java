@@ -0,0 +1,79 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.github.rjbx.demo.stocks.model.DatabaseStockQuote;
+import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.service.DatabaseStockService;
+import com.github.rjbx.demo.stocks.service.ServiceFactory;
+import com.github.rjbx.demo.stocks.service.ServiceType;
+import org.hibernate.stat.Statistics;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the PooledIdGenerator class.
+ * @author Bob Basmaji
+ */
+public final class PooledIdGeneratorTest {
+    // fields of this class
+    private static final int NUMBER_OF_QUOTES = 200;
+    private static final DateTime FIRST_QUOTE = new DateTime(2016, 8, 1, 9, 30);
+    private DatabaseStockSymbol stockSymbol;
+
+    /**
+     * Sets up logic common to each test
+     * @throws DatabaseInitializationException
+     */
+    @Before
+    public final void setUp() throws DatabaseInitializationException {
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+        stockSymbol = new DatabaseStockSymbol("IDS");
+    }
+
+    /**
+     * Verifies that quotes saved within one unit of work are inserted in batches rather than one statement each
+     */
+    @Test
+    public final void testGeneratePositive() {
+        Statistics statistics = DatabaseUtils.getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+        long inserts = statistics.getEntityInsertCount();
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            work.getSession().save(stockSymbol);
+            for (int i = 0; i < NUMBER_OF_QUOTES; i++) {
+                work.getSession().save(new DatabaseStockQuote(FIRST_QUOTE.plusMinutes(i), BigDecimal.ONE, stockSymbol));
+            }
+            work.commit();
+        }
+        assertTrue("saved quotes were not inserted", statistics.getEntityInsertCount() - inserts == NUMBER_OF_QUOTES + 1);
+        assertTrue("saved quotes were not inserted in batches", statistics.getPrepareStatementCount() - statements < NUMBER_OF_QUOTES / 2);
+    }
+
+    /**
+     * Verifies that rows inserted by Hibernate and by the JDBC bulk import are not given the same id
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testGenerateNegative() throws StockServiceException {
+        DatabaseStockService service = (DatabaseStockService) ServiceFactory.createStockService(ServiceType.DATABASE);
+        List<StockQuote> quotes = new ArrayList<StockQuote>();
+        for (int i = 0; i < NUMBER_OF_QUOTES; i++) {
+            service.addOrUpdateQuote(FIRST_QUOTE.plusHours(i), BigDecimal.ONE, new DatabaseStockSymbol(stockSymbol.getSymbol()));
+            quotes.add(new StockQuote(FIRST_QUOTE.plusHours(i).plusMinutes(1), BigDecimal.TEN, stockSymbol.getSymbol()));
+            if (quotes.size() == 10) {
+                service.addQuotes(quotes);
+                quotes.clear();
+            }
+        }
+        assertFalse("rows inserted by Hibernate and by the bulk import collided",
+                service.getQuote(stockSymbol.getSymbol(), FIRST_QUOTE, FIRST_QUOTE.plusHours(NUMBER_OF_QUOTES)).size() != NUMBER_OF_QUOTES * 2);
+    }
+}
@@ -0,0 +1,165 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.Immutable;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ReplicaRouter class.
+ * The primary and both replicas are separate in-process databases; replication is simulated by stamping the heartbeat
+ * of each replica directly.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class ReplicaRouterTest {
+    // fields of this class
+    private static final long MAX_LAG_MILLIS = 5000;
+    private static final long PROBE_INTERVAL_MILLIS = 60000;
+    private DataSource primary;
+    private DataSource replica1;
+    private DataSource replica2;
+
+    /**
+     * Sets up logic common to each test
+     * @throws SQLException
+     */
+    @Before
+    public final void setUp() throws SQLException {
+        primary = createDatabase("router_primary");
+        replica1 = createDatabase("router_replica1");
+        replica2 = createDatabase("router_replica2");
+    }
+
+    /**
+     * Verifies that reads alternate between replicas within the lag tolerance while writes go to the primary
+     * @throws SQLException
+     */
+    @Test
+    public final void testGetReadConnectionPositive() throws SQLException {
+        stamp(replica1, System.currentTimeMillis());
+        stamp(replica2, System.currentTimeMillis());
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(replica1, replica2),
+                ReplicaRouter.Selection.ROUND_ROBIN, MAX_LAG_MILLIS, PROBE_INTERVAL_MILLIS);
+        Set<String> urls = new HashSet<String>();
+        urls.add(readUrl(router));
+        urls.add(readUrl(router));
+        assertTrue("Reads did not alternate between both replicas",
+                urls.equals(new HashSet<String>(Arrays.asList(urlOf(replica1), urlOf(replica2)))));
+        assertTrue("Reads within the lag tolerance were not served by replicas", router.getReplicaReads() == 2 && router.getPrimaryReads() == 0);
+        try (Connection connection = router.getWriteConnection()) {
+            assertTrue("Write connection does not belong to the primary", connection.getMetaData().getURL().equals(urlOf(primary)));
+        }
+    }
+
+    /**
+     * Verifies that reads skip a replica lagging beyond the tolerance, and fall back to the primary when every replica does
+     * @throws SQLException
+     */
+    @Test
+    public final void testGetReadConnectionNegative() throws SQLException {
+        stamp(replica1, System.currentTimeMillis());
+        stamp(replica2, System.currentTimeMillis() - 10 * MAX_LAG_MILLIS);
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(replica1, replica2),
+                ReplicaRouter.Selection.ROUND_ROBIN, MAX_LAG_MILLIS, PROBE_INTERVAL_MILLIS);
+        assertFalse("Read was served by a replica lagging beyond the tolerance",
+                !readUrl(router).equals(urlOf(replica1)) || !readUrl(router).equals(urlOf(replica1)));
+        stamp(replica1, System.currentTimeMillis() - 10 * MAX_LAG_MILLIS);
+        router.probe();
+        assertFalse("Read was not served by the primary while every replica lagged beyond the tolerance",
+                !readUrl(router).equals(urlOf(primary)) || router.getPrimaryReads() != 1);
+    }
+
+    /**
+     * Verifies that least-latency selection reads from a replica within the lag tolerance
+     * @throws SQLException
+     */
+    @Test
+    public final void testLeastLatencyPositive() throws SQLException {
+        stamp(replica1, System.currentTimeMillis());
+        stamp(replica2, System.currentTimeMillis());
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(replica1, replica2),
+                ReplicaRouter.Selection.LEAST_LATENCY, MAX_LAG_MILLIS, PROBE_INTERVAL_MILLIS);
+        String url = readUrl(router);
+        assertTrue("Least-latency read was not served by a replica", url.equals(urlOf(replica1)) || url.equals(urlOf(replica2)));
+        assertTrue("Probe did not measure the lag of both replicas", router.getLagMillis(0) <= MAX_LAG_MILLIS && router.getLagMillis(1) <= MAX_LAG_MILLIS);
+    }
+
+    /**
+     * Verifies that least-latency selection reads from the primary when no replica is configured
+     * @throws SQLException
+     */
+    @Test
+    public final void testLeastLatencyNegative() throws SQLException {
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.<DataSource>asList(),
+                ReplicaRouter.Selection.LEAST_LATENCY, MAX_LAG_MILLIS, PROBE_INTERVAL_MILLIS);
+        assertFalse("Read without replicas was not served by the primary", !readUrl(router).equals(urlOf(primary)));
+    }
+
+    /**
+     * Creates an in-process database holding the heartbeat table
+     * @param name the name of the database
+     * @return a {@code DataSource} of the database
+     * @throws SQLException
+     */
+    private static DataSource createDatabase(String name) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists replication_heartbeat(id int not null, beat_millis bigint not null, primary key (id))");
+            statement.execute("merge into replication_heartbeat (id, beat_millis) key (id) values (1, 0)");
+        }
+        return dataSource;
+    }
+
+    /**
+     * Simulates the replication of a heartbeat stamped at the given time
+     * @param replica the replica receiving the heartbeat
+     * @param beatMillis the time of the heartbeat
+     * @throws SQLException
+     */
+    private static void stamp(DataSource replica, long beatMillis) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             PreparedStatement statement = connection.prepareStatement("update replication_heartbeat set beat_millis = ? where id = 1")) {
+            statement.setLong(1, beatMillis);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Borrows a read connection and returns the URL of the database serving it
+     * @param router the router to borrow from
+     * @return the URL of the database
+     * @throws SQLException
+     */
+    private static String readUrl(ReplicaRouter router) throws SQLException {
+        try (Connection connection = router.getReadConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+
+    /**
+     * @param dataSource an in-process database created by this test
+     * @return the URL of the database as reported by its connections
+     * @throws SQLException
+     */
+    private static String urlOf(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.apache.http.annotation.Immutable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static com.github.rjbx.demo.stocks.utility.DatabaseUtils.initializationFile;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the SchemaMigrator class.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class SchemaMigratorTest {
+
+    /**
+     * Sets up logic common to each test
+     * @throws DatabaseInitializationException
+     */
+    @Before
+    public final void setUp() throws DatabaseInitializationException {
+        DatabaseUtils.initializeDatabase(initializationFile);
+    }
+
+    /**
+     * Verifies that initializing the database applies every migration
+     * @throws DatabaseConnectionException
+     * @throws SQLException
+     */
+    @Test
+    public final void testMigratePositive() throws DatabaseConnectionException, SQLException {
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            assertTrue("Schema version after initialization is not the version of the newest migration",
+                    SchemaMigrator.getVersion(connection) == 6);
+        }
+    }
+
+    /**
+     * Verifies that migrating an up-to-date schema applies nothing
+     * @throws DatabaseConnectionException
+     * @throws DatabaseInitializationException
+     * @throws SQLException
+     */
+    @Test
+    public final void testMigrateNegative() throws DatabaseConnectionException, DatabaseInitializationException, SQLException {
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            int version = SchemaMigrator.getVersion(connection);
+            assertFalse("Migrating an up-to-date schema changed its version",
+                    SchemaMigrator.migrate(connection, SchemaMigrator.migrationsDirectory) != version);
+        }
+    }
+
+    /**
+     * Verifies that a missing migrations directory fails the migration rather than leaving the schema unmigrated
+     * @throws DatabaseConnectionException
+     * @throws SQLException
+     */
+    @Test
+    public final void testMigrateMissingDirectoryNegative() throws DatabaseConnectionException, SQLException {
+        boolean rejected = false;
+        try (Connection connection = DatabaseUtils.getConnection()) {
+            SchemaMigrator.migrate(connection, SchemaMigrator.getMigrationsDirectory("no/such/directory/stocks_db_initialization"));
+        } catch (DatabaseInitializationException e) {
+            rejected = true;
+        }
+        assertFalse("A missing migrations directory was treated as having no migrations", !rejected);
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the SymbolDictionary class.
+ * @author Bob Basmaji
+ */
+public final class SymbolDictionaryTest {
+    // fields of this class
+    private static final int NUMBER_OF_SYMBOLS = 1000;
+    private SymbolDictionary dictionary;
+
+    /**
+     * Sets up logic common to each test
+     */
+    @Before
+    public final void setUp() {
+        dictionary = SymbolDictionary.INSTANCE;
+        dictionary.clear();
+        for (int id = 1; id <= NUMBER_OF_SYMBOLS; id++) {
+            dictionary.register("S" + id, id);
+        }
+    }
+
+    /**
+     * Discards the symbols registered by each test
+     */
+    @After
+    public final void tearDown() {
+        dictionary.clear();
+    }
+
+    /**
+     * Verifies that every registered symbol maps to its id and back
+     */
+    @Test
+    public final void testLookupPositive() {
+        boolean allFound = true;
+        for (int id = 1; id <= NUMBER_OF_SYMBOLS; id++) {
+            allFound &= dictionary.lookup("S" + id) == id && ("S" + id).equals(dictionary.getSymbol(id));
+        }
+        assertTrue("registered symbols do not map to their ids and back", allFound && dictionary.size() == NUMBER_OF_SYMBOLS);
+    }
+
+    /**
+     * Verifies that an unregistered symbol is reported as missing and counted as a miss
+     */
+    @Test
+    public final void testLookupNegative() {
+        long misses = dictionary.getMisses();
+        assertTrue("unregistered symbol maps to an id", dictionary.lookup("BLARG") == SymbolDictionary.NO_ID);
+        assertFalse("lookup of an unregistered symbol is not counted as a miss", dictionary.getMisses() == misses);
+    }
+
+    /**
+     * Verifies that clear discards every symbol
+     */
+    @Test
+    public final void testClearPositive() {
+        dictionary.clear();
+        assertTrue("clear does not discard registered symbols",
+                dictionary.size() == 0 && dictionary.lookup("S1") == SymbolDictionary.NO_ID && dictionary.getSymbol(1) == null);
+    }
+
+    /**
+     * Verifies that clear marks the dictionary for reloading
+     */
+    @Test
+    public final void testClearNegative() {
+        dictionary.clear();
+        assertFalse("cleared dictionary is still marked as loaded", dictionary.isLoaded());
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.github.rjbx.demo.stocks.model.DatabasePerson;
+import com.github.rjbx.demo.stocks.model.DatabaseStockSymbol;
+import com.github.rjbx.demo.stocks.service.PersonService;
+import com.github.rjbx.demo.stocks.service.ServiceFactory;
+import com.ibatis.common.jdbc.ScriptRunner;
+import org.apache.http.annotation.Immutable;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.TransactionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the UnitOfWork class.
+ * @author Bob Basmaji
+ */
+@Immutable
+public final class UnitOfWorkTest {
+    // fields of this class
+    private static final long REPLICA_MAX_LAG_MILLIS = 5000;
+    private PersonService personService;
+    private DatabasePerson person;
+
+    /**
+     * Sets up logic common to each test
+     * @throws DatabaseInitializationException
+     */
+    @Before
+    public final void setUp() throws DatabaseInitializationException {
+        DatabaseUtils.initializeDatabase(DatabaseUtils.initializationFile);
+        personService = ServiceFactory.createPersonService();
+        person = new DatabasePerson();
+        person.setFirstName("Unit");
+        person.setLastName("Work");
+    }
+
+    /**
+     * Verifies that service calls made within a unit of work share its session and are committed together
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testBeginPositive() throws PersonServiceException {
+        long sessionsOpened = UnitOfWork.getSessionOpenTime().getCount();
+        int personCount;
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            personCount = personService.getPersons().size();
+            personService.addOrUpdatePerson(person);
+            personService.getStockSymbols(person);
+            work.commit();
+        }
+        assertTrue("Service calls within a unit of work opened more than one session",
+                UnitOfWork.getSessionOpenTime().getCount() == sessionsOpened + 1);
+        assertTrue("Person added within a committed unit of work was not stored", personService.getPersons().size() == personCount + 1);
+        assertFalse("Unit of work is still active after it was closed", UnitOfWork.isActive());
+    }
+
+    /**
+     * Verifies that changes made within a unit of work closed without committing are rolled back
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testBeginNegative() throws PersonServiceException {
+        int personCount = personService.getPersons().size();
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            personService.addOrUpdatePerson(person);
+        }
+        assertFalse("Person added within a unit of work closed without committing was stored",
+                personService.getPersons().size() != personCount);
+    }
+
+    /**
+     * Verifies that read-only service calls within a read-only unit of work share its session
+     * @throws PersonServiceException
+     */
+    @Test
+    public final void testBeginReadOnlyPositive() throws PersonServiceException {
+        long sessionsOpened = UnitOfWork.getSessionOpenTime().getCount();
+        try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+            personService.getPersons();
+            personService.getPersons(0, 1);
+            assertTrue("Unit of work opened with beginReadOnly is not read-only", work.isReadOnly());
+            work.commit();
+        }
+        assertTrue("Read-only service calls within a unit of work opened more than one session",
+                UnitOfWork.getSessionOpenTime().getCount() == sessionsOpened + 1);
+    }
+
+    /**
+     * Verifies that a write cannot join a read-only unit of work
+     */
+    @Test
+    public final void testBeginReadOnlyNegative() {
+        boolean rejected = false;
+        try (UnitOfWork work = UnitOfWork.beginReadOnly()) {
+            personService.addOrUpdatePerson(person);
+        } catch (PersonServiceException e) {
+            rejected = e.getCause() instanceof TransactionException;
+        }
+        assertFalse("Write joined a read-only unit of work", !rejected || UnitOfWork.isActive());
+    }
+
+    /**
+     * Verifies that rows read from a lagging replica after a write on the primary are not cached,
+     * so that a later read served by the primary sees the write
+     * @throws Exception
+     */
+    @Test
+    public final void testBeginReadOnlyFromReplicaNegative() throws Exception {
+        DataSource replica = createReplica();
+        DatabasePerson johnDoe = null;
+        for (DatabasePerson candidate : personService.getPersons()) {
+            if (candidate.getFirstName().equals("John")) {
+                johnDoe = candidate;
+            }
+        }
+        ReplicaRouter router = new ReplicaRouter(DatabaseUtils.getDataSource(), Collections.singletonList(replica),
+                ReplicaRouter.Selection.ROUND_ROBIN, REPLICA_MAX_LAG_MILLIS, 60000);
+        ReplicaRouter profileRouter = DatabaseUtils.getReplicaRouter();
+        DatabaseUtils.setReplicaRouter(router);
+        try {
+            personService.addStockToPerson(new DatabaseStockSymbol("GOOG"), johnDoe);
+            // the replica has not received the write yet, but is within the lag tolerance
+            stampReplica(replica, System.currentTimeMillis());
+            router.probe();
+            boolean replicaHasWrite = holds(personService.getStockSymbols(johnDoe), "GOOG");
+            // the replica falls behind the tolerance, so the next read is served by the primary or the cache
+            stampReplica(replica, System.currentTimeMillis() - 10 * REPLICA_MAX_LAG_MILLIS);
+            router.probe();
+            boolean cachedHasWrite = holds(personService.getStockSymbols(johnDoe), "GOOG");
+            assertFalse("Rows read from a lagging replica were cached and hid a committed write",
+                    replicaHasWrite || router.getReplicaReads() != 1 || !cachedHasWrite);
+        } finally {
+            DatabaseUtils.setReplicaRouter(profileRouter);
+        }
+    }
+
+    /**
+     * Creates an in-process replica holding the schema and seed rows of the primary, which receives no later writes
+     * @return a {@code DataSource} of the replica
+     * @throws Exception
+     */
+    private static DataSource createReplica() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:stocks_replica;MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS stocks\\;SET SCHEMA stocks");
+        dataSource.setUser("sa");
+        try (Connection connection = dataSource.getConnection();
+             Reader reader = new InputStreamReader(new FileInputStream(DatabaseUtils.initializationFile), StandardCharsets.UTF_8)) {
+            connection.setAutoCommit(false);
+            new ScriptRunner(connection, false, false).runScript(reader);
+            connection.commit();
+            SchemaMigrator.migrate(connection, SchemaMigrator.getMigrationsDirectory(DatabaseUtils.initializationFile));
+        }
+        return dataSource;
+    }
+
+    /**
+     * Simulates the replication of a heartbeat stamped at the given time
+     * @param replica the replica receiving the heartbeat
+     * @param beatMillis the time of the heartbeat
+     * @throws SQLException
+     */
+    private static void stampReplica(DataSource replica, long beatMillis) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             PreparedStatement statement = connection.prepareStatement("update replication_heartbeat set beat_millis = ? where id = 1")) {
+            statement.setLong(1, beatMillis);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * @param stockSymbols the stocks of a person
+     * @param symbol a symbol
+     * @return true if the symbol is among the stocks
+     */
+    private static boolean holds(List<DatabaseStockSymbol> stockSymbols, String symbol) {
+        for (DatabaseStockSymbol stockSymbol : stockSymbols) {
+            if (stockSymbol.getSymbol().equals(symbol)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
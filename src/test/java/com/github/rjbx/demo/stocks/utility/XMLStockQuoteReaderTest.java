@@ -0,0 +1,55 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the XMLStockQuoteReader class.
+ * @author Bob Basmaji
+ */
+public final class XMLStockQuoteReaderTest {
+
+    /**
+     * Verifies that the reader yields every stock element of the feed in document order
+     * @throws XMLUnmarshalException
+     */
+    @Test
+    public final void testNextPositive() throws XMLUnmarshalException {
+        int count = 0;
+        String firstSymbol = null;
+        try (XMLStockQuoteReader reader = XMLUtils.openReader(XMLUtils.xmlFilePath)) {
+            while (reader.next()) {
+                if (firstSymbol == null) {
+                    firstSymbol = reader.get().getSymbol();
+                }
+                count++;
+            }
+        }
+        assertTrue("Reader did not yield every stock element of the feed", count > 0 && count == XMLUtils.unmarshal(XMLUtils.xmlFilePath).getStock().size());
+        assertTrue("Reader did not yield the stock elements in document order", "VNET".equals(firstSymbol));
+    }
+
+    /**
+     * Verifies that a feed which breaks off midway is reported after the elements read before the break
+     * @throws XMLUnmarshalException
+     */
+    @Test
+    public final void testNextNegative() throws XMLUnmarshalException {
+        String xml = "<stocks><stock symbol=\"AAPL\" price=\"1.00\" time=\"2015-02-10 00:00:01\"/>\n    <stock symbol=";
+        int count = 0;
+        boolean failed = false;
+        try (XMLStockQuoteReader reader = new XMLStockQuoteReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))) {
+            while (reader.next()) {
+                count++;
+            }
+        } catch (XMLUnmarshalException e) {
+            failed = true;
+        }
+        assertFalse("Malformed feed was not reported after the elements before the break", !failed || count != 1);
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.rjbx.demo.stocks.utility;
+
+import com.github.rjbx.demo.stocks.model.StockQuote;
+import com.github.rjbx.demo.stocks.service.StockQuoteCursor;
+import com.github.rjbx.demo.stocks.service.StockQuoteCursors;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the XMLStockQuoteWriter class.
+ * @author Bob Basmaji
+ */
+public final class XMLStockQuoteWriterTest {
+    // fields of this class
+    private static final String SCHEMA_FILE_PATH = "src/main/resources/xml/stock_info.xsd";
+
+    /**
+     * Verifies that an export is valid against the schema and reads back as the quotes written
+     * @throws Exception
+     */
+    @Test
+    public final void testWritePositive() throws Exception {
+        List<StockQuote> quotes = StockQuoteCursors.toList(StockQuoteCursors.fromXML(XMLUtils.openReader(XMLUtils.xmlFilePath)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long exported = XMLUtils.export(StockQuoteCursors.fromIterable(quotes), outputStream);
+        byte[] document = outputStream.toByteArray();
+        SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new File(SCHEMA_FILE_PATH))
+                .newValidator().validate(new StreamSource(new ByteArrayInputStream(document)));
+        List<StockQuote> exportedQuotes = StockQuoteCursors.toList(StockQuoteCursors.fromXML(new XMLStockQuoteReader(new ByteArrayInputStream(document))));
+        assertTrue("Export did not write every quote", exported == quotes.size() && exportedQuotes.size() == quotes.size());
+        assertTrue("Exported quote does not read back as the quote written",
+                exportedQuotes.get(0).getSymbol().equals(quotes.get(0).getSymbol())
+                        && exportedQuotes.get(0).getPrice().equals(quotes.get(0).getPrice())
+                        && exportedQuotes.get(0).getTime().equals(quotes.get(0).getTime()));
+    }
+
+    /**
+     * Verifies that an export whose cursor fails midway is left incomplete
+     * @throws XMLMarshalException
+     */
+    @Test
+    public final void testWriteNegative() throws XMLMarshalException {
+        final StockQuote quote = new StockQuote(new DateTime(2015, 2, 10, 0, 0, 1), new BigDecimal("110.10"), "VNET");
+        StockQuoteCursor failing = new StockQuoteCursor() {
+            private boolean read;
+
+            @Override
+            public boolean next() throws StockServiceException {
+                if (read) {
+                    throw new StockServiceException("Connection lost");
+                }
+                read = true;
+                return true;
+            }
+
+            @Override
+            public StockQuote get() {
+                return quote;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        boolean rejected = false;
+        try {
+            XMLUtils.export(failing, outputStream);
+        } catch (StockServiceException e) {
+            rejected = true;
+        }
+        String document = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse("Failed export was completed as if it were whole",
+                !rejected || document.contains("</stocks>") || !document.contains("VNET"));
+    }
+
+    /**
+     * Verifies that an export whose cursor fails midway with an unchecked exception is left incomplete as well
+     * @throws XMLMarshalException
+     * @throws StockServiceException
+     */
+    @Test
+    public final void testWriteUncheckedFailureNegative() throws XMLMarshalException, StockServiceException {
+        final StockQuote quote = new StockQuote(new DateTime(2015, 2, 10, 0, 0, 1), new BigDecimal("110.10"), "VNET");
+        StockQuoteCursor failing = new StockQuoteCursor() {
+            private boolean read;
+
+            @Override
+            public boolean next() {
+                if (read) {
+                    throw new IllegalStateException("Cursor was closed by another thread");
+                }
+                read = true;
+                return true;
+            }
+
+            @Override
+            public StockQuote get() {
+                return quote;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        boolean rejected = false;
+        try {
+            XMLUtils.export(failing, outputStream);
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        String document = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        assertFalse("Export failed by an unchecked exception was completed as if it were whole",
+                !rejected || document.contains("</stocks>") || !document.contains("VNET"));
+    }
+}
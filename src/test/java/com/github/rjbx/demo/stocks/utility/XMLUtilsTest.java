@@ -3,8 +3,19 @@ package com.github.rjbx.demo.stocks.utility;
 import com.github.rjbx.demo.stocks.model.XMLStockQuoteList;
 import org.junit.Test;
 
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.transform.sax.SAXResult;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -53,4 +64,93 @@ public final class XMLUtilsTest {
         XMLStockQuoteList quoteList = null;
         XMLUtils.marshal(quoteList);
     }
+
+    /**
+     * Verifies that every call for a bound type shares one context, and that a thread reuses its unmarshaller
+     * @throws JAXBException
+     */
+    @Test
+    public final void testGetContextPositive() throws JAXBException {
+        assertTrue("Calls for the same bound type did not share one context",
+                XMLUtils.getContext(XMLStockQuoteList.class) == XMLUtils.getContext(XMLStockQuoteList.class));
+        assertTrue("Thread did not reuse its unmarshaller",
+                XMLUtils.getUnmarshaller(XMLStockQuoteList.class) == XMLUtils.getUnmarshaller(XMLStockQuoteList.class));
+    }
+
+    /**
+     * Verifies that two threads do not share an unmarshaller
+     * @throws Exception
+     */
+    @Test
+    public final void testGetContextNegative() throws Exception {
+        final Unmarshaller[] other = new Unmarshaller[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    other[0] = XMLUtils.getUnmarshaller(XMLStockQuoteList.class);
+                } catch (JAXBException e) {
+                    other[0] = null;
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        assertFalse("Two threads shared an unmarshaller",
+                other[0] == null || other[0] == XMLUtils.getUnmarshaller(XMLStockQuoteList.class));
+    }
+
+    /**
+     * Verifies that a gzip-compressed feed is read like the uncompressed feed
+     * @throws IOException
+     * @throws XMLUnmarshalException
+     */
+    @Test
+    public final void testOpenReaderPositive() throws IOException, XMLUnmarshalException {
+        File feed = compressFeed(Long.MAX_VALUE);
+        int count = 0;
+        try (XMLStockQuoteReader reader = XMLUtils.openReader(feed.getPath())) {
+            while (reader.next()) {
+                count++;
+            }
+        }
+        assertTrue("Compressed feed did not yield every quote of the uncompressed feed",
+                count == XMLUtils.unmarshal(XMLUtils.xmlFilePath).getStock().size());
+    }
+
+    /**
+     * Verifies that a truncated gzip-compressed feed is reported
+     * @throws IOException
+     */
+    @Test
+    public final void testOpenReaderNegative() throws IOException {
+        File feed = compressFeed(256);
+        boolean rejected = false;
+        try (XMLStockQuoteReader reader = XMLUtils.openReader(feed.getPath())) {
+            while (reader.next()) {
+                reader.get();
+            }
+        } catch (XMLUnmarshalException e) {
+            rejected = true;
+        }
+        assertFalse("Truncated compressed feed was not reported", !rejected);
+    }
+
+    /**
+     * Compresses the sample feed into a temporary file, keeping at most the given number of compressed bytes
+     * @param maxBytes the number of compressed bytes to keep
+     * @return the compressed feed
+     * @throws IOException
+     */
+    private static File compressFeed(long maxBytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(Files.readAllBytes(Paths.get(XMLUtils.xmlFilePath)));
+        }
+        byte[] bytes = compressed.toByteArray();
+        File feed = File.createTempFile("stock_info", ".xml.gz");
+        feed.deleteOnExit();
+        Files.write(feed.toPath(), Arrays.copyOf(bytes, (int) Math.min(bytes.length, maxBytes)));
+        return feed;
+    }
 }